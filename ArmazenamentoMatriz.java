@@ -0,0 +1,239 @@
+/*
+
+Experimento: Quanto custa a matriz "irregular" (int[][]) do Java?
+
+Em C, uma matriz int m[N][N] é um único bloco contíguo de memória. Em Java, int[][] é um
+array de referências para N arrays int[] alocados separadamente:
+- cada acesso m[i][j] precisa primeiro ler a referência m[i] e só depois o valor;
+- cada linha tem seu próprio cabeçalho de objeto (12 a 16 bytes);
+- onde cada linha fica no heap depende do alocador e do coletor de lixo, então linhas
+  vizinhas não estão necessariamente vizinhas na memória.
+
+Aqui a mesma matriz é guardada de três formas diferentes, e as varreduras por linha e por
+coluna são executadas sobre cada uma delas:
+- IRREGULAR: o int[][] tradicional, como em CacheLocalidadeEspacial.
+- PLANA: um único int[] com LINHAS * COLUNAS posições, índice = i * colunas + j.
+- FORA DO HEAP: um ByteBuffer.allocateDirect, memória nativa fora do alcance do coletor.
+
+Cada forma implementa suas próprias varreduras, para que o JIT compile um laço específico
+(sem chamadas virtuais) para cada uma.
+
+*/
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public abstract class ArmazenamentoMatriz {
+
+    protected final int linhas;
+    protected final int colunas;
+
+    protected ArmazenamentoMatriz(int linhas, int colunas) {
+        this.linhas = linhas;
+        this.colunas = colunas;
+    }
+
+    public int linhas() {
+        return linhas;
+    }
+
+    public int colunas() {
+        return colunas;
+    }
+
+    public abstract String nome();
+
+    public abstract int ler(int i, int j);
+
+    public abstract void escrever(int i, int j, int valor);
+
+    public abstract long percorrerPorLinha();
+
+    public abstract long percorrerPorColuna();
+
+    /**
+     * Cria um armazenamento do tipo indicado ("irregular", "plana" ou "foraDoHeap")
+     * com uma cópia dos valores da matriz de origem.
+     */
+    public static ArmazenamentoMatriz criar(String tipo, int[][] origem) {
+        int linhas = origem.length;
+        int colunas = linhas == 0 ? 0 : origem[0].length;
+        ArmazenamentoMatriz m;
+        switch (tipo) {
+            case "irregular":
+                m = new Irregular(linhas, colunas);
+                break;
+            case "plana":
+                m = new Plana(linhas, colunas);
+                break;
+            case "foraDoHeap":
+                m = new ForaDoHeap(linhas, colunas);
+                break;
+            default:
+                throw new IllegalArgumentException("Armazenamento desconhecido: " + tipo);
+        }
+        for (int i = 0; i < linhas; i++) {
+            for (int j = 0; j < colunas; j++) {
+                m.escrever(i, j, origem[i][j]);
+            }
+        }
+        return m;
+    }
+
+    /**
+     * O int[][] do Java: um array de referências para linhas alocadas separadamente.
+     */
+    static class Irregular extends ArmazenamentoMatriz {
+        private final int[][] dados;
+
+        Irregular(int linhas, int colunas) {
+            super(linhas, colunas);
+            dados = new int[linhas][colunas];
+        }
+
+        public String nome() {
+            return "IRREGULAR";
+        }
+
+        public int ler(int i, int j) {
+            return dados[i][j];
+        }
+
+        public void escrever(int i, int j, int valor) {
+            dados[i][j] = valor;
+        }
+
+        public long percorrerPorLinha() {
+            return CacheLocalidadeEspacial.percorrerPorLinha(dados);
+        }
+
+        public long percorrerPorColuna() {
+            return CacheLocalidadeEspacial.percorrerPorColuna(dados);
+        }
+    }
+
+    /**
+     * Um único int[] contíguo, em ordem "linha-major": índice = i * colunas + j.
+     */
+    static class Plana extends ArmazenamentoMatriz {
+        private final int[] dados;
+
+        Plana(int linhas, int colunas) {
+            super(linhas, colunas);
+            // multiplyExact rejeita matrizes com mais elementos que um int[] comporta
+            dados = new int[Math.multiplyExact(linhas, colunas)];
+        }
+
+        public String nome() {
+            return "PLANA";
+        }
+
+        public int ler(int i, int j) {
+            return dados[i * colunas + j];
+        }
+
+        public void escrever(int i, int j, int valor) {
+            dados[i * colunas + j] = valor;
+        }
+
+        public long percorrerPorLinha() {
+            long soma = 0;
+            for (int k = 0; k < dados.length; k++) {
+                soma += dados[k];
+            }
+            return soma;
+        }
+
+        public long percorrerPorColuna() {
+            long soma = 0;
+            // k em long: perto de 2^31 elementos, k + colunas passaria do maior int
+            for (int j = 0; j < colunas; j++) {
+                for (long k = j; k < dados.length; k += colunas) {
+                    soma += dados[(int) k];
+                }
+            }
+            return soma;
+        }
+    }
+
+    /**
+     * Memória nativa (fora do heap), também em ordem "linha-major".
+     * Limitada a 2 GB, o tamanho máximo de um ByteBuffer.
+     */
+    static class ForaDoHeap extends ArmazenamentoMatriz {
+        private final ByteBuffer dados;
+
+        ForaDoHeap(int linhas, int colunas) {
+            super(linhas, colunas);
+            dados = ByteBuffer.allocateDirect(Math.multiplyExact(Math.multiplyExact(linhas, colunas), Integer.BYTES))
+                              .order(ByteOrder.nativeOrder());
+        }
+
+        public String nome() {
+            return "FORA DO HEAP";
+        }
+
+        public int ler(int i, int j) {
+            return dados.getInt((i * colunas + j) * Integer.BYTES);
+        }
+
+        public void escrever(int i, int j, int valor) {
+            dados.putInt((i * colunas + j) * Integer.BYTES, valor);
+        }
+
+        public long percorrerPorLinha() {
+            long soma = 0;
+            int limite = dados.capacity();
+            for (int k = 0; k < limite; k += Integer.BYTES) {
+                soma += dados.getInt(k);
+            }
+            return soma;
+        }
+
+        public long percorrerPorColuna() {
+            long soma = 0;
+            int limite = dados.capacity();
+            int passo = colunas * Integer.BYTES;
+            // Posição em long, como na Plana: k + passo pode passar do maior int
+            for (int j = 0; j < colunas; j++) {
+                for (long k = (long) j * Integer.BYTES; k < limite; k += passo) {
+                    soma += dados.getInt((int) k);
+                }
+            }
+            return soma;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int tamanho = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        System.out.println("Comparando formas de armazenar uma matriz " + tamanho + " x " + tamanho);
+        System.out.println("----------------------------------------------------------");
+
+        // Reaproveita a matriz do experimento original quando o tamanho é o mesmo
+        int[][] origem = tamanho == CacheLocalidadeEspacial.LINHAS
+                         ? CacheLocalidadeEspacial.matriz()
+                         : CacheLocalidadeEspacial.criarMatriz(tamanho, tamanho);
+        String[] tipos = {"irregular", "plana", "foraDoHeap"};
+
+        double tempoLinhaIrregular = 0;
+        for (String tipo : tipos) {
+            ArmazenamentoMatriz m = criar(tipo, origem);
+
+            long[] linha = Medicao.medir(2, 5, m::percorrerPorLinha);
+            long[] coluna = Medicao.medir(1, 3, m::percorrerPorColuna);
+            double linhaMs = Medicao.media(linha) / 1_000_000.0;
+            double colunaMs = Medicao.media(coluna) / 1_000_000.0;
+            if (tipo.equals("irregular")) {
+                tempoLinhaIrregular = linhaMs;
+            }
+
+            System.out.printf("%-13s LINHA: %8.2f ms | COLUNA: %8.2f ms | coluna/linha: %5.2fx | linha vs. IRREGULAR: %.2fx\n",
+                              m.nome(), linhaMs, colunaMs, colunaMs / linhaMs, tempoLinhaIrregular / linhaMs);
+
+            if (m.percorrerPorLinha() != m.percorrerPorColuna()) {
+                System.out.println("As somas não batem, algo está muito errado!");
+            }
+        }
+        System.out.println();
+    }
+}
@@ -0,0 +1,558 @@
+/*
+
+Suíte de benchmarks dos experimentos de cache e disco.
+
+Os métodos main de cada experimento fazem uma única medição, boa para a aula, mas
+ruim para comparar máquinas: o resultado muda bastante de uma rodada para outra.
+Aqui cada núcleo de cálculo dos experimentos é executado no estilo do JMH:
+- cada combinação de parâmetros roda em uma ou mais JVMs novas (forks);
+- cada fork faz iterações de aquecimento e depois iterações medidas;
+- o resultado de cada execução é consumido pelo Medicao.buracoNegro;
+- as coletas de lixo e os bytes alocados de cada iteração são contados (ver MetricasGC);
+  a coluna GC mostra quantas iterações tiveram uma coleta no meio da medição;
+- os tempos de todas as iterações são gravados em JSON, no mesmo formato geral do JMH,
+  para que possam ser comparados entre máquinas; como no JMH, o scoreError é a metade do
+  intervalo de confiança de 99,9% da média (t de Student), não o desvio padrão.
+- o disco.frio tira o arquivo do cache do S.O. antes de cada iteração (ver CacheDePaginas);
+  se não conseguir, um aviso sai abaixo da linha. Sem root, o arquivo de preenchimento
+  maior que a RAM só é usado com java -Dcache.preencher=true -cp bin Benchmarks ...
+
+Uso:
+  java -cp bin Benchmarks [filtro...] [-f forks] [-wi aquecimentos] [-i iteracoes]
+                          [-p parametro=v1,v2,...] [-jvmArgs "opcoes"] [-rff arquivo.json]
+                          [-l]
+
+Exemplos:
+  java -cp bin Benchmarks -l
+  java -cp bin Benchmarks salto -p salto=1,16,64 -f 3
+  java -cp bin Benchmarks espacial -p tamanho=2000,10000 -rff espacial.json
+
+*/
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+public class Benchmarks {
+
+    private static final String PREFIXO_RESULTADO = "#RESULTADO ";
+    private static final String PREFIXO_GC = "#GC ";
+    private static final String PREFIXO_AVISO = "#AVISO ";
+
+    // Opções padrão; podem ser trocadas pela linha de comando
+    private static int forks = 2;
+    private static int aquecimentos = 3;
+    private static int iteracoes = 5;
+    private static String arquivoResultado = "resultados-benchmark.json";
+    private static final List<String> opcoesJvm = new ArrayList<>(Arrays.asList("-Xmx3g"));
+
+    /**
+     * Um caso de teste pronto para ser medido: a preparação (opcional, fora do tempo) e a tarefa.
+     */
+    static class Caso {
+        final Medicao.Preparacao preparacao;
+        final Medicao.Tarefa tarefa;
+        // Executado depois das medições (ex: encerrar o pool de threads do caso)
+        Runnable encerramento;
+
+        Caso(Medicao.Preparacao preparacao, Medicao.Tarefa tarefa) {
+            this.preparacao = preparacao;
+            this.tarefa = tarefa;
+        }
+
+        Caso(Medicao.Tarefa tarefa) {
+            this(null, tarefa);
+        }
+
+        Caso aoEncerrar(Runnable encerramento) {
+            this.encerramento = encerramento;
+            return this;
+        }
+    }
+
+    interface Fabrica {
+        Caso criar(Map<String, String> parametros) throws Exception;
+    }
+
+    /**
+     * Um benchmark registrado: nome, parâmetros com seus valores padrão e como criar o caso.
+     */
+    static class Definicao {
+        final String nome;
+        final Map<String, String[]> parametros;
+        final Fabrica fabrica;
+        // Usa o arquivo de teste de 'tamanhoMB' MB (ver arquivoDeTeste)
+        final boolean usaArquivo;
+
+        Definicao(String nome, Map<String, String[]> parametros, Fabrica fabrica, boolean usaArquivo) {
+            this.nome = nome;
+            this.parametros = parametros;
+            this.fabrica = fabrica;
+            this.usaArquivo = usaArquivo;
+        }
+    }
+
+    private static final Map<String, Definicao> definicoes = new LinkedHashMap<>();
+
+    static void registrar(String nome, Map<String, String[]> parametros, Fabrica fabrica) {
+        definicoes.put(nome, new Definicao(nome, parametros, fabrica, false));
+    }
+
+    /**
+     * Como registrar, para casos que leem o arquivo de teste de 'tamanhoMB' MB. O processo
+     * principal cria o arquivo uma vez, antes dos forks, e o apaga no fim.
+     */
+    static void registrarComArquivo(String nome, Map<String, String[]> parametros, Fabrica fabrica) {
+        definicoes.put(nome, new Definicao(nome, parametros, fabrica, true));
+    }
+
+    static Map<String, String[]> parametros(String... nomesEValores) {
+        Map<String, String[]> mapa = new LinkedHashMap<>();
+        for (int i = 0; i < nomesEValores.length; i += 2) {
+            mapa.put(nomesEValores[i], nomesEValores[i + 1].split(","));
+        }
+        return mapa;
+    }
+
+    static int inteiro(Map<String, String> parametros, String nome) {
+        return Integer.parseInt(parametros.get(nome));
+    }
+
+    /**
+     * Arquivo de teste com o tamanho indicado, criado só se ainda não existe. Nos forks ele
+     * já foi criado pelo processo principal, que também o apaga.
+     */
+    static File arquivoDeTeste(long tamanhoBytes) throws IOException {
+        File arquivo = new File("benchmark_" + tamanhoBytes + ".dat");
+        if (arquivo.length() != tamanhoBytes) {
+            RAMvsDisco.criarArquivoTemporario(arquivo, tamanhoBytes);
+        }
+        return arquivo;
+    }
+
+    static {
+        // --- CacheLocalidadeEspacial ---
+        registrar("espacial.linha", parametros("tamanho", "10000"), p -> {
+            int[][] m = CacheLocalidadeEspacial.criarMatriz(inteiro(p, "tamanho"), inteiro(p, "tamanho"));
+            return new Caso(() -> CacheLocalidadeEspacial.percorrerPorLinha(m));
+        });
+        registrar("espacial.coluna", parametros("tamanho", "10000"), p -> {
+            int[][] m = CacheLocalidadeEspacial.criarMatriz(inteiro(p, "tamanho"), inteiro(p, "tamanho"));
+            return new Caso(() -> CacheLocalidadeEspacial.percorrerPorColuna(m));
+        });
+        registrar("espacial.blocos", parametros("tamanho", "10000", "bloco", "16,64,256,1024"), p -> {
+            int[][] m = CacheLocalidadeEspacial.criarMatriz(inteiro(p, "tamanho"), inteiro(p, "tamanho"));
+            int bloco = inteiro(p, "bloco");
+            return new Caso(() -> CacheLocalidadeEspacial.percorrerPorBlocos(m, bloco));
+        });
+        registrar("espacial.armazenamento",
+                  parametros("tamanho", "10000", "armazenamento", "irregular,plana,foraDoHeap", "ordem", "linha,coluna"), p -> {
+            int[][] origem = CacheLocalidadeEspacial.criarMatriz(inteiro(p, "tamanho"), inteiro(p, "tamanho"));
+            ArmazenamentoMatriz m = ArmazenamentoMatriz.criar(p.get("armazenamento"), origem);
+            return p.get("ordem").equals("linha") ? new Caso(m::percorrerPorLinha) : new Caso(m::percorrerPorColuna);
+        });
+        registrar("espacial.paralelo", parametros("tamanho", "10000", "threads", "1,2,4", "ordem", "linha,coluna"), p -> {
+            int[][] m = CacheLocalidadeEspacial.criarMatriz(inteiro(p, "tamanho"), inteiro(p, "tamanho"));
+            ForkJoinPool pool = new ForkJoinPool(inteiro(p, "threads"));
+            Caso caso = p.get("ordem").equals("linha")
+                        ? new Caso(() -> CacheLocalidadeParalela.percorrerPorLinhaParalelo(m, pool))
+                        : new Caso(() -> CacheLocalidadeParalela.percorrerPorColunaParalelo(m, pool));
+            return caso.aoEncerrar(pool::shutdown);
+        });
+
+        // --- CacheLocalidadeTemporal ---
+        registrar("temporal.espalhada", parametros("tamanho", "10000", "operacoes", "50000000"), p -> {
+            int[] d = CacheLocalidadeTemporal.criarDados(inteiro(p, "tamanho"));
+            int operacoes = inteiro(p, "operacoes");
+            return new Caso(() -> CacheLocalidadeTemporal.somaEspalhada(d, operacoes));
+        });
+        registrar("temporal.repetida", parametros("tamanho", "10000", "operacoes", "50000000"), p -> {
+            int[] d = CacheLocalidadeTemporal.criarDados(inteiro(p, "tamanho"));
+            int operacoes = inteiro(p, "operacoes");
+            return new Caso(() -> CacheLocalidadeTemporal.somaRepetida(d, operacoes));
+        });
+
+        registrar("temporal.perseguicao", parametros("tamanhoKB", "16,256,4096,65536", "passos", "20000000"), p -> {
+            int[] proximo = PerseguicaoPonteiros.criarCiclo(inteiro(p, "tamanhoKB") * 1024L, 42);
+            long passos = Long.parseLong(p.get("passos"));
+            return new Caso(() -> PerseguicaoPonteiros.perseguir(proximo, passos));
+        });
+        registrar("temporal.padrao", parametros("padrao", String.join(",", PadroesAcesso.PADROES),
+                                                "tamanhoKB", "32,1024,32768", "acessos", "16000000"), p -> {
+            int tamanho = inteiro(p, "tamanhoKB") * 1024 / Integer.BYTES;
+            int[] d = CacheTamanhoLinha.criarDados(tamanho);
+            PadroesAcesso.Padrao padrao = PadroesAcesso.criar(p.get("padrao"), tamanho, inteiro(p, "acessos"), 42);
+            return new Caso(() -> padrao.percorrer(d));
+        });
+
+        // --- CacheTamanhoLinha ---
+        // kernel=vetorial só difere de "escalar" quando a JVM tem o módulo jdk.incubator.vector
+        registrar("linha.salto", parametros("tamanho", "134217728", "salto", "1,2,4,8,16,32,64,128",
+                                            "kernel", "escalar,vetorial"), p -> {
+            int[] d = CacheTamanhoLinha.criarDados(inteiro(p, "tamanho"));
+            int salto = inteiro(p, "salto");
+            return p.get("kernel").equals("escalar")
+                   ? new Caso(() -> CacheTamanhoLinha.acessarComSalto(d, salto))
+                   : new Caso(() -> KernelsSoma.somarComSalto(d, salto));
+        });
+
+        // --- RAMvsDisco ---
+        // "frio" e "quente" usam o mesmo caminho de leitura; no "frio" o arquivo é retirado
+        // do cache de páginas do S.O. antes de cada leitura (fora do tempo medido).
+        registrarComArquivo("disco.frio", parametros("tamanhoMB", "512"), p -> {
+            File arquivo = arquivoDeTeste(inteiro(p, "tamanhoMB") * 1024L * 1024L);
+            CacheDePaginas.prepararPreenchimento();
+            return new Caso(() -> {
+                if (CacheDePaginas.esvaziarOuPreencher(arquivo) == null) {
+                    avisar("cache do S.O. não esvaziado; as leituras vieram da RAM "
+                           + "(java -Dcache.preencher=true -cp bin Benchmarks ...)");
+                }
+            }, () -> RAMvsDisco.lerComStream(arquivo));
+        });
+        registrarComArquivo("disco.quente", parametros("tamanhoMB", "512"), p -> {
+            File arquivo = arquivoDeTeste(inteiro(p, "tamanhoMB") * 1024L * 1024L);
+            RAMvsDisco.lerComStream(arquivo); // Garante que o arquivo está no cache do S.O.
+            return new Caso(() -> RAMvsDisco.lerComStream(arquivo));
+        });
+        registrarComArquivo("disco.ram", parametros("tamanhoMB", "512", "kernel", "escalar,vetorial"), p -> {
+            File arquivo = arquivoDeTeste(inteiro(p, "tamanhoMB") * 1024L * 1024L);
+            byte[] dadosEmMemoria = Files.readAllBytes(arquivo.toPath());
+            return p.get("kernel").equals("escalar")
+                   ? new Caso(() -> RAMvsDisco.somarBytes(dadosEmMemoria))
+                   : new Caso(() -> KernelsSoma.somarBytes(dadosEmMemoria));
+        });
+        registrarComArquivo("disco.caminho", parametros("tamanhoMB", "512",
+                  "caminho", String.join(",", LeitoresArquivo.CAMINHOS)), p -> {
+            File arquivo = arquivoDeTeste(inteiro(p, "tamanhoMB") * 1024L * 1024L);
+            String caminho = p.get("caminho");
+            return new Caso(() -> LeitoresArquivo.ler(caminho, arquivo));
+        });
+
+        // --- MapaDeBits ---
+        registrar("bits.mapa", parametros("milhoesDeBits", "64", "estrutura", String.join(",", MapaDeBits.ESTRUTURAS),
+                                          "operacao", String.join(",", MapaDeBits.OPERACOES)), p ->
+                new Caso(MapaDeBits.criarTarefa(p.get("estrutura"), p.get("operacao"),
+                                                inteiro(p, "milhoesDeBits") * 1_000_000, 42)));
+
+        // --- OperacoesBitsEmMassa ---
+        registrar("bits.massa", parametros("tamanhoMB", "64", "threads", "1",
+                                           "operacao", String.join(",", OperacoesBitsEmMassa.OPERACOES),
+                                           "estrategia", String.join(",", OperacoesBitsEmMassa.ESTRATEGIAS),
+                                           "armazenamento", String.join(",", OperacoesBitsEmMassa.ARMAZENAMENTOS)), p -> {
+            int tamanho = OperacoesBitsEmMassa.tamanhoEmBytes(inteiro(p, "tamanhoMB"));
+            ForkJoinPool pool = new ForkJoinPool(inteiro(p, "threads"));
+            return new Caso(OperacoesBitsEmMassa.criarTarefa(p.get("operacao"), p.get("estrategia"),
+                                                             p.get("armazenamento"), tamanho, pool))
+                    .aoEncerrar(pool::shutdown);
+        });
+    }
+
+    /**
+     * Gera todas as combinações dos valores dos parâmetros (produto cartesiano).
+     */
+    static List<Map<String, String>> combinacoes(Map<String, String[]> parametros) {
+        List<Map<String, String>> resultado = new ArrayList<>();
+        resultado.add(new LinkedHashMap<>());
+        for (Map.Entry<String, String[]> parametro : parametros.entrySet()) {
+            List<Map<String, String>> novas = new ArrayList<>();
+            for (Map<String, String> parcial : resultado) {
+                for (String valor : parametro.getValue()) {
+                    Map<String, String> combinacao = new LinkedHashMap<>(parcial);
+                    combinacao.put(parametro.getKey(), valor);
+                    novas.add(combinacao);
+                }
+            }
+            resultado = novas;
+        }
+        return resultado;
+    }
+
+    static String codificar(Map<String, String> parametros) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> e : parametros.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            sb.append(e.getKey()).append('=').append(e.getValue());
+        }
+        return sb.toString();
+    }
+
+    static Map<String, String> decodificar(String texto) {
+        Map<String, String> parametros = new LinkedHashMap<>();
+        if (!texto.isEmpty()) {
+            for (String par : texto.split(";")) {
+                String[] kv = par.split("=", 2);
+                parametros.put(kv[0], kv[1]);
+            }
+        }
+        return parametros;
+    }
+
+    /**
+     * Executado dentro do fork: mede um único caso e imprime os tempos das iterações.
+     */
+    // Avisos já impressos por este fork (cada um vai uma vez só para o processo principal)
+    private static final Set<String> avisosImpressos = new HashSet<>();
+
+    /**
+     * Avisa o processo principal de algo que compromete a medição deste fork.
+     */
+    static void avisar(String texto) {
+        if (avisosImpressos.add(texto)) {
+            System.out.println(PREFIXO_AVISO + texto);
+        }
+    }
+
+    static void executarFilho(String nome, Map<String, String> parametros, int aquecimentos,
+                              int iteracoes) throws Exception {
+        Caso caso = definicoes.get(nome).fabrica.criar(parametros);
+        long[] amostras;
+        try {
+            amostras = Medicao.medir(aquecimentos, iteracoes, caso.preparacao, caso.tarefa);
+        } finally {
+            if (caso.encerramento != null) {
+                caso.encerramento.run();
+            }
+        }
+
+        StringBuilder sb = new StringBuilder(PREFIXO_RESULTADO);
+        for (int i = 0; i < amostras.length; i++) {
+            sb.append(i == 0 ? "" : ",").append(amostras[i]);
+        }
+        System.out.println(sb);
+
+        // Coletas, tempo de coleta (ms), bytes alocados e se a iteração foi contaminada
+        MetricasGC.Trecho total = MetricasGC.somar(Medicao.ultimasMetricas);
+        System.out.println(PREFIXO_GC + total.coletas + "," + total.msColeta + "," + total.bytesAlocados
+                           + "," + MetricasGC.contaminados(Medicao.ultimasMetricas));
+    }
+
+    /**
+     * Coletas de lixo e alocação somadas de todos os forks de um caso.
+     */
+    static class TotaisGC {
+        long coletas;
+        long msColeta;
+        long bytesAlocados;
+        int contaminadas;
+    }
+
+    /**
+     * Executa um caso em 'forks' JVMs novas e junta as amostras de todas elas.
+     */
+    static long[][] executarForks(String nome, Map<String, String> parametros, TotaisGC gc, Set<String> avisos)
+            throws Exception {
+        long[][] amostras = new long[forks][];
+        for (int f = 0; f < forks; f++) {
+            List<String> argumentos = Arrays.asList("--filho", nome, codificar(parametros),
+                    String.valueOf(aquecimentos), String.valueOf(iteracoes));
+            List<String> saida = Medicao.executarEmNovaJVM(opcoesJvm, "Benchmarks", argumentos);
+            for (String linha : saida) {
+                if (linha.startsWith(PREFIXO_RESULTADO)) {
+                    amostras[f] = Arrays.stream(linha.substring(PREFIXO_RESULTADO.length()).split(","))
+                            .mapToLong(Long::parseLong).toArray();
+                } else if (linha.startsWith(PREFIXO_GC)) {
+                    String[] campos = linha.substring(PREFIXO_GC.length()).split(",");
+                    gc.coletas += Long.parseLong(campos[0]);
+                    gc.msColeta += Long.parseLong(campos[1]);
+                    gc.bytesAlocados += Long.parseLong(campos[2]);
+                    gc.contaminadas += Integer.parseInt(campos[3]);
+                } else if (linha.startsWith(PREFIXO_AVISO)) {
+                    avisos.add(linha.substring(PREFIXO_AVISO.length()));
+                }
+            }
+            if (amostras[f] == null) {
+                throw new IOException("O fork de " + nome + " não produziu resultado.");
+            }
+        }
+        return amostras;
+    }
+
+    static String json(String nome, Map<String, String> parametros, long[][] amostras, TotaisGC gc) {
+        long[] todas = Arrays.stream(amostras).flatMapToLong(Arrays::stream).toArray();
+        StringBuilder sb = new StringBuilder();
+        sb.append("  {\n");
+        sb.append("    \"benchmark\" : \"").append(nome).append("\",\n");
+        sb.append("    \"mode\" : \"avgt\",\n");
+        sb.append("    \"forks\" : ").append(forks).append(",\n");
+        sb.append("    \"warmupIterations\" : ").append(aquecimentos).append(",\n");
+        sb.append("    \"measurementIterations\" : ").append(iteracoes).append(",\n");
+        sb.append("    \"jvm\" : \"").append(System.getProperty("java.vm.name")).append(' ')
+          .append(System.getProperty("java.version")).append("\",\n");
+        sb.append("    \"jvmArgs\" : \"").append(String.join(" ", opcoesJvm)).append("\",\n");
+        sb.append("    \"params\" : {");
+        int i = 0;
+        for (Map.Entry<String, String> e : parametros.entrySet()) {
+            sb.append(i++ == 0 ? " " : ", ").append('"').append(e.getKey()).append("\" : \"")
+              .append(e.getValue()).append('"');
+        }
+        sb.append(" },\n");
+        sb.append("    \"primaryMetric\" : {\n");
+        double media = Medicao.media(todas) / 1_000_000.0;
+        sb.append(String.format(Locale.ROOT, "      \"score\" : %.3f,\n", media));
+        // Como no JMH: metade do intervalo de confiança de 99,9% da média (t de Student)
+        double erro = Medicao.erroDaMedia(todas, 0.999) / 1_000_000.0;
+        if (Double.isNaN(erro)) {
+            sb.append("      \"scoreError\" : \"NaN\",\n");
+            sb.append("      \"scoreConfidence\" : [ \"NaN\", \"NaN\" ],\n");
+        } else {
+            sb.append(String.format(Locale.ROOT, "      \"scoreError\" : %.3f,\n", erro));
+            sb.append(String.format(Locale.ROOT, "      \"scoreConfidence\" : [ %.3f, %.3f ],\n",
+                    media - erro, media + erro));
+        }
+        sb.append("      \"scoreUnit\" : \"ms/op\",\n");
+        sb.append("      \"rawData\" : [");
+        for (int f = 0; f < amostras.length; f++) {
+            sb.append(f == 0 ? "" : ", ").append('[');
+            for (int j = 0; j < amostras[f].length; j++) {
+                sb.append(j == 0 ? "" : ", ")
+                  .append(String.format(Locale.ROOT, "%.3f", amostras[f][j] / 1_000_000.0));
+            }
+            sb.append(']');
+        }
+        sb.append("]\n");
+        sb.append("    },\n");
+        // Mesmos nomes do profiler de GC do JMH (-prof gc)
+        sb.append("    \"secondaryMetrics\" : {\n");
+        sb.append(String.format(Locale.ROOT, "      \"·gc.alloc.rate.norm\" : { \"score\" : %.1f, \"scoreUnit\" : \"B/op\" },\n",
+                (double) gc.bytesAlocados / todas.length));
+        sb.append(String.format(Locale.ROOT, "      \"·gc.count\" : { \"score\" : %d, \"scoreUnit\" : \"counts\" },\n",
+                gc.coletas));
+        sb.append(String.format(Locale.ROOT, "      \"·gc.time\" : { \"score\" : %d, \"scoreUnit\" : \"ms\" },\n",
+                gc.msColeta));
+        sb.append(String.format(Locale.ROOT, "      \"·gc.contaminatedIterations\" : { \"score\" : %d, \"scoreUnit\" : \"counts\" }\n",
+                gc.contaminadas));
+        sb.append("    }\n");
+        sb.append("  }");
+        return sb.toString();
+    }
+
+    static void imprimirUso() {
+        System.out.println("Uso: java -cp bin Benchmarks [filtro...] [-f forks] [-wi aquecimentos] [-i iteracoes]");
+        System.out.println("                             [-p parametro=v1,v2,...] [-jvmArgs \"opcoes\"] [-rff arquivo.json]");
+        System.out.println("                             [-l]");
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--filho")) {
+            executarFilho(args[1], decodificar(args[2]), Integer.parseInt(args[3]),
+                    Integer.parseInt(args[4]));
+            return;
+        }
+
+        if (CacheDePaginas.PREENCHER) {
+            opcoesJvm.add("-Dcache.preencher=true");
+        }
+        List<String> filtros = new ArrayList<>();
+        Map<String, String[]> parametrosLinhaComando = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-f":
+                    forks = Integer.parseInt(args[++i]);
+                    break;
+                case "-wi":
+                    aquecimentos = Integer.parseInt(args[++i]);
+                    break;
+                case "-i":
+                    iteracoes = Integer.parseInt(args[++i]);
+                    break;
+                case "-p":
+                    String[] kv = i + 1 < args.length ? args[++i].split("=", 2) : new String[0];
+                    if (kv.length != 2) {
+                        System.out.println("Esperado -p parametro=v1,v2,...");
+                        imprimirUso();
+                        return;
+                    }
+                    parametrosLinhaComando.put(kv[0], kv[1].split(","));
+                    break;
+                case "-jvmArgs":
+                    opcoesJvm.addAll(Arrays.asList(args[++i].trim().split("\\s+")));
+                    break;
+                case "-rff":
+                    arquivoResultado = args[++i];
+                    break;
+                case "-l":
+                    for (Definicao d : definicoes.values()) {
+                        System.out.print(d.nome);
+                        for (Map.Entry<String, String[]> e : d.parametros.entrySet()) {
+                            System.out.print(" " + e.getKey() + "=" + String.join(",", e.getValue()));
+                        }
+                        System.out.println();
+                    }
+                    return;
+                default:
+                    filtros.add(args[i]);
+            }
+        }
+
+        List<String> blocosJson = new ArrayList<>();
+        System.out.printf("%-22s %-40s %12s %12s %12s %10s%n", "Benchmark", "Parâmetros", "ms/op", "± desvio",
+                          "aloc/op", "GC");
+        System.out.println("------------------------------------------------------------------------------------------------------------------------");
+
+        // Arquivos de teste criados aqui, uma vez para todos os forks; apagados no fim
+        List<File> arquivosCriados = new ArrayList<>();
+        try {
+            for (Definicao d : definicoes.values()) {
+                boolean selecionado = filtros.isEmpty();
+                for (String filtro : filtros) {
+                    selecionado |= d.nome.contains(filtro);
+                }
+                if (!selecionado) {
+                    continue;
+                }
+
+                Map<String, String[]> parametros = new LinkedHashMap<>(d.parametros);
+                for (Map.Entry<String, String[]> e : parametrosLinhaComando.entrySet()) {
+                    if (parametros.containsKey(e.getKey())) {
+                        parametros.put(e.getKey(), e.getValue());
+                    }
+                }
+
+                for (Map<String, String> combinacao : combinacoes(parametros)) {
+                    if (d.usaArquivo) {
+                        arquivosCriados.add(arquivoDeTeste(inteiro(combinacao, "tamanhoMB") * 1024L * 1024L));
+                        // Com -Dcache.preencher=true, o preenchimento também é criado uma vez aqui
+                        CacheDePaginas.prepararPreenchimento();
+                    }
+                    TotaisGC gc = new TotaisGC();
+                    Set<String> avisos = new LinkedHashSet<>();
+                    long[][] amostras = executarForks(d.nome, combinacao, gc, avisos);
+                    long[] todas = Arrays.stream(amostras).flatMapToLong(Arrays::stream).toArray();
+                    // Iterações em que o coletor rodou têm o tempo da coleta somado ao tempo medido
+                    System.out.printf("%-22s %-40s %12.3f %12.3f %12s %10s%n", d.nome, codificar(combinacao),
+                            Medicao.media(todas) / 1_000_000.0, Medicao.desvioPadrao(todas) / 1_000_000.0,
+                            MetricasGC.bytes(gc.bytesAlocados / todas.length),
+                            gc.contaminadas == 0 ? "-" : gc.contaminadas + "/" + todas.length + "!");
+                    for (String aviso : avisos) {
+                        System.out.println("    ! " + aviso);
+                    }
+                    blocosJson.add(json(d.nome, combinacao, amostras, gc));
+                }
+            }
+        } finally {
+            for (File arquivo : arquivosCriados) {
+                arquivo.delete();
+            }
+        }
+
+        try (PrintWriter saida = new PrintWriter(arquivoResultado, "UTF-8")) {
+            saida.println("[");
+            saida.println(String.join(",\n", blocosJson));
+            saida.println("]");
+        }
+        System.out.println("\nResultados gravados em " + arquivoResultado);
+    }
+}
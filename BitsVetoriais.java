@@ -0,0 +1,127 @@
+/*
+
+Implementação vetorial (SIMD) das operações em massa do OperacoesBitsEmMassa, com a Vector
+API (jdk.incubator.vector). Não use esta classe diretamente: ela só pode ser carregada
+quando KernelsSoma.VETORIAL_DISPONIVEL é verdadeiro.
+
+Cada operador (VectorOperators.AND, LSHL...) aparece como constante no laço de um "case"
+próprio: a Vector API só vira instruções SIMD quando o compilador JIT sabe qual é o
+operador, e o switch fica fora do laço, executado uma vez por chamada.
+
+*/
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+class BitsVetoriais {
+
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+
+    // Um laço por operador, escolhido uma vez antes do laço; a sobra que não completa um
+    // vetor vai para o laço byte a byte do OperacoesBitsEmMassa
+    static void aplicar(int op, byte[] a, byte[] b, byte[] destino, int n, int de, int ate) {
+        int i = de;
+        int limite = de + BYTES.loopBound(ate - de);
+        switch (op) {
+            case OperacoesBitsEmMassa.AND:
+                for (; i < limite; i += BYTES.length()) {
+                    ByteVector.fromArray(BYTES, a, i).lanewise(VectorOperators.AND, ByteVector.fromArray(BYTES, b, i))
+                            .intoArray(destino, i);
+                }
+                break;
+            case OperacoesBitsEmMassa.OR:
+                for (; i < limite; i += BYTES.length()) {
+                    ByteVector.fromArray(BYTES, a, i).lanewise(VectorOperators.OR, ByteVector.fromArray(BYTES, b, i))
+                            .intoArray(destino, i);
+                }
+                break;
+            case OperacoesBitsEmMassa.XOR:
+                for (; i < limite; i += BYTES.length()) {
+                    ByteVector.fromArray(BYTES, a, i).lanewise(VectorOperators.XOR, ByteVector.fromArray(BYTES, b, i))
+                            .intoArray(destino, i);
+                }
+                break;
+            case OperacoesBitsEmMassa.NOT:
+                for (; i < limite; i += BYTES.length()) {
+                    ByteVector.fromArray(BYTES, a, i).lanewise(VectorOperators.NOT)
+                            .intoArray(destino, i);
+                }
+                break;
+            case OperacoesBitsEmMassa.SHL:
+                for (; i < limite; i += BYTES.length()) {
+                    ByteVector.fromArray(BYTES, a, i).lanewise(VectorOperators.LSHL, n)
+                            .intoArray(destino, i);
+                }
+                break;
+            case OperacoesBitsEmMassa.SHR:
+                for (; i < limite; i += BYTES.length()) {
+                    ByteVector.fromArray(BYTES, a, i).lanewise(VectorOperators.ASHR, n)
+                            .intoArray(destino, i);
+                }
+                break;
+            default:
+                for (; i < limite; i += BYTES.length()) {
+                    ByteVector.fromArray(BYTES, a, i).lanewise(VectorOperators.NEG)
+                            .intoArray(destino, i);
+                }
+        }
+        OperacoesBitsEmMassa.aplicarByte(op, a, b, destino, n, i, ate);
+    }
+
+    static void aplicar(int op, ByteBuffer a, ByteBuffer b, ByteBuffer destino, int n, int de, int ate) {
+        ByteOrder ordem = ByteOrder.nativeOrder();
+        int i = de;
+        int limite = de + BYTES.loopBound(ate - de);
+        switch (op) {
+            case OperacoesBitsEmMassa.AND:
+                for (; i < limite; i += BYTES.length()) {
+                    ByteVector.fromByteBuffer(BYTES, a, i, ordem).lanewise(VectorOperators.AND,
+                                    ByteVector.fromByteBuffer(BYTES, b, i, ordem))
+                            .intoByteBuffer(destino, i, ordem);
+                }
+                break;
+            case OperacoesBitsEmMassa.OR:
+                for (; i < limite; i += BYTES.length()) {
+                    ByteVector.fromByteBuffer(BYTES, a, i, ordem).lanewise(VectorOperators.OR,
+                                    ByteVector.fromByteBuffer(BYTES, b, i, ordem))
+                            .intoByteBuffer(destino, i, ordem);
+                }
+                break;
+            case OperacoesBitsEmMassa.XOR:
+                for (; i < limite; i += BYTES.length()) {
+                    ByteVector.fromByteBuffer(BYTES, a, i, ordem).lanewise(VectorOperators.XOR,
+                                    ByteVector.fromByteBuffer(BYTES, b, i, ordem))
+                            .intoByteBuffer(destino, i, ordem);
+                }
+                break;
+            case OperacoesBitsEmMassa.NOT:
+                for (; i < limite; i += BYTES.length()) {
+                    ByteVector.fromByteBuffer(BYTES, a, i, ordem).lanewise(VectorOperators.NOT)
+                            .intoByteBuffer(destino, i, ordem);
+                }
+                break;
+            case OperacoesBitsEmMassa.SHL:
+                for (; i < limite; i += BYTES.length()) {
+                    ByteVector.fromByteBuffer(BYTES, a, i, ordem).lanewise(VectorOperators.LSHL, n)
+                            .intoByteBuffer(destino, i, ordem);
+                }
+                break;
+            case OperacoesBitsEmMassa.SHR:
+                for (; i < limite; i += BYTES.length()) {
+                    ByteVector.fromByteBuffer(BYTES, a, i, ordem).lanewise(VectorOperators.ASHR, n)
+                            .intoByteBuffer(destino, i, ordem);
+                }
+                break;
+            default:
+                for (; i < limite; i += BYTES.length()) {
+                    ByteVector.fromByteBuffer(BYTES, a, i, ordem).lanewise(VectorOperators.NEG)
+                            .intoByteBuffer(destino, i, ordem);
+                }
+        }
+        OperacoesBitsEmMassa.aplicarByte(op, a, b, destino, n, i, ate);
+    }
+}
@@ -19,6 +19,27 @@ public class BitwiseOperatorsExample_L6 {
         return (value >> position) & 1;
     }
 
+    /*
+     * As mesmas operações sobre uma palavra de 64 bits (long), usadas pelo MapaDeBits para
+     * guardar milhões de bits em um long[]. A máscara precisa ser 1L: com 1 (int) o
+     * deslocamento só considera os 5 bits menos significativos da posição (1 << 32 == 1).
+     */
+    public static long setBit(long value, int bitPosition) {
+        return value | (1L << bitPosition);
+    }
+
+    public static long resetBit(long value, int bitPosition) {
+        return value & ~(1L << bitPosition);
+    }
+
+    public static long flipBit(long value, int bitPosition) {
+        return value ^ (1L << bitPosition);
+    }
+
+    public static int getBit(long value, int position) {
+        return (int) (value >>> position) & 1;
+    }
+
     /**
      * Converte um valor byte em sua representação binária (String).
      * Mostra todos os 8 bits do byte, incluindo os zeros à esquerda.
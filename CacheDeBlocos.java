@@ -0,0 +1,637 @@
+/*
+
+Experimento: Cache de Blocos da Aplicação (LRU, CLOCK e W-TinyLFU)
+
+O RAMvsDisco compara dois extremos: o arquivo inteiro no disco e o arquivo inteiro na RAM
+(Files.readAllBytes). Um banco de dados ou um servidor de arquivos fica no meio: ele tem um
+orçamento fixo de memória e guarda nele as páginas do arquivo que mais espera reler.
+
+Aqui construímos esse cache:
+- O arquivo é dividido em páginas de 4 KB, lidas sob demanda com FileChannel.read(buffer,
+  posição) quando não estão no cache (uma "falta").
+- Toda a memória do cache é um único ByteBuffer direto (fora do heap), alocado uma vez e
+  dividido em quadros de 4 KB. Uma página carregada ocupa um quadro; nada é alocado por
+  leitura e o coletor de lixo não precisa percorrer os dados. O main aloca essa memória
+  uma só vez, para o maior orçamento, e a reaproveita em todas as configurações.
+- Quando não há quadro livre, a POLÍTICA DE REMOÇÃO escolhe qual página sai:
+  - LRU:       sai a página usada há mais tempo (lista duplamente ligada);
+  - CLOCK:     aproximação do LRU com um bit de "referenciada" por quadro e um ponteiro
+               circular; um acerto só liga um bit, sem mexer em lista nenhuma;
+  - W-TINYLFU: a política do Caffeine. Páginas novas entram em uma janela LRU pequena
+               (1%); ao sair da janela, a página só é ADMITIDA no cache principal (LRU
+               segmentado: 20% em prova, 80% protegida) se tiver sido acessada mais vezes
+               que a página que sairia no lugar dela. As frequências ficam em um Count-Min
+               Sketch de contadores de 4 bits, divididos por 2 de tempos em tempos para
+               esquecer o passado. Resiste a varreduras e a páginas acessadas uma vez só.
+- Leitores concorrentes: o cache é dividido em listras (striped locking). Cada página
+  pertence a uma listra, e cada listra tem sua trava, seus quadros e sua política; leitores
+  de listras diferentes não disputam a mesma trava. (Com isso cada política vê só uma
+  fração do cache, o que muda um pouco a taxa de acertos em orçamentos muito pequenos.)
+
+Para cada carga de trabalho (UNIFORME: toda página é igualmente provável; ZIPF: poucas
+páginas recebem quase todos os acessos, ver DistribuicaoZipf), orçamento (% do arquivo) e
+política, imprimimos a taxa de acertos, a vazão e os percentis de latência por leitura
+(ver Histograma). Numa carga uniforme nenhuma política faz milagre: a taxa de acertos fica
+perto do orçamento. Na Zipf, um cache de poucos % do arquivo já acerta a maioria das leituras.
+
+Obs: o arquivo costuma estar no cache de páginas do S.O. logo depois de criado, então uma
+falta aqui custa uma chamada de sistema e uma cópia, não um acesso ao disco (ver
+CacheDePaginas e LatenciaAleatoria para leituras realmente frias).
+
+Uso: java -cp bin CacheDeBlocos [tamanhoMB] [leiturasPorThread] [threads]
+
+*/
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class CacheDeBlocos implements Closeable {
+
+    public static final String[] POLITICAS = {"lru", "clock", "tinylfu"};
+    public static final String[] DISTRIBUICOES = {"uniforme", "zipf"};
+
+    public static final int TAMANHO_PAGINA = 4096;
+    private static final int LISTRAS_PADRAO = 16;
+    // Listras com menos quadros que isso deixam as políticas sem espaço para trabalhar
+    private static final int MINIMO_QUADROS_POR_LISTRA = 64;
+
+    private final FileChannel canal;
+    private final long paginas;
+    // Quadro de cada página do arquivo, ou -1 se ela não está no cache. Cada posição só é
+    // lida e escrita com a trava da listra da página.
+    private final int[] quadroDaPagina;
+    private final Listra[] listras;
+
+    /**
+     * Cache com 'orcamentoBytes' de memória (arredondado para páginas) sobre o arquivo. A
+     * memória é um ByteBuffer direto novo, que só é liberado pelo coletor de lixo depois
+     * que o cache deixa de ser usado (close() fecha apenas o arquivo); para criar vários
+     * caches em sequência, prefira alocar a memória uma vez e usar o outro construtor.
+     */
+    public CacheDeBlocos(File arquivo, long orcamentoBytes, String politica) throws IOException {
+        this(arquivo, alocar(orcamentoBytes), politica);
+    }
+
+    /**
+     * Cache sobre o arquivo usando 'memoria' (a capacidade, arredondada para páginas) para
+     * guardar as páginas. A memória pode ser reaproveitada por outro cache depois do close().
+     */
+    public CacheDeBlocos(File arquivo, ByteBuffer memoria, String politica) throws IOException {
+        long quadros = memoria.capacity() / TAMANHO_PAGINA;
+        if (quadros < 1) {
+            throw new IllegalArgumentException("Memória menor que uma página: " + memoria.capacity());
+        }
+        canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ);
+        paginas = canal.size() / TAMANHO_PAGINA;
+        if (paginas > Integer.MAX_VALUE) {
+            canal.close();
+            throw new IllegalArgumentException("Arquivo grande demais: " + canal.size());
+        }
+        quadroDaPagina = new int[(int) paginas];
+        Arrays.fill(quadroDaPagina, -1);
+
+        // Número de listras: potência de 2, reduzida para caches pequenos
+        int numeroListras = LISTRAS_PADRAO;
+        while (numeroListras > 1 && quadros / numeroListras < MINIMO_QUADROS_POR_LISTRA) {
+            numeroListras /= 2;
+        }
+        ByteBuffer slab = memoria.duplicate();
+        listras = new Listra[numeroListras];
+        int inicio = 0;
+        for (int l = 0; l < numeroListras; l++) {
+            int quadrosListra = (int) (quadros / numeroListras + (l < quadros % numeroListras ? 1 : 0));
+            listras[l] = new Listra(slab, inicio, quadrosListra, criarPolitica(politica, quadrosListra));
+            inicio += quadrosListra;
+        }
+    }
+
+    /**
+     * ByteBuffer direto com 'orcamentoBytes' arredondado para páginas, para os construtores.
+     */
+    public static ByteBuffer alocar(long orcamentoBytes) {
+        long quadros = orcamentoBytes / TAMANHO_PAGINA;
+        if (quadros < 1 || quadros * TAMANHO_PAGINA > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Orçamento deve ficar entre 4 KB e 2 GB: " + orcamentoBytes);
+        }
+        return ByteBuffer.allocateDirect((int) (quadros * TAMANHO_PAGINA));
+    }
+
+    static Politica criarPolitica(String nome, int quadros) {
+        switch (nome) {
+            case "lru":
+                return new Lru(quadros);
+            case "clock":
+                return new Clock(quadros);
+            case "tinylfu":
+                return new WTinyLfu(quadros);
+            default:
+                throw new IllegalArgumentException("Política desconhecida: " + nome);
+        }
+    }
+
+    public long paginas() {
+        return paginas;
+    }
+
+    /**
+     * Copia a página 'pagina' do arquivo para 'destino' (pelo menos TAMANHO_PAGINA bytes).
+     * Retorna true se a página já estava no cache.
+     */
+    public boolean ler(long pagina, byte[] destino) throws IOException {
+        // Páginas vizinhas caem em listras diferentes, espalhando uma varredura
+        Listra listra = listras[(int) (pagina & (listras.length - 1))];
+        listra.trava.lock();
+        try {
+            return listra.ler((int) pagina, destino);
+        } finally {
+            listra.trava.unlock();
+        }
+    }
+
+    public double taxaAcertos() {
+        long acertos = 0, total = 0;
+        for (Listra listra : listras) {
+            acertos += listra.acertos;
+            total += listra.acertos + listra.faltas;
+        }
+        return total == 0 ? 0 : (double) acertos / total;
+    }
+
+    public void zerarContadores() {
+        for (Listra listra : listras) {
+            listra.trava.lock();
+            try {
+                listra.acertos = 0;
+                listra.faltas = 0;
+            } finally {
+                listra.trava.unlock();
+            }
+        }
+    }
+
+    /**
+     * Fecha o arquivo. A memória do cache não é liberada aqui (ver os construtores).
+     */
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    /**
+     * Uma fatia do cache: os seus quadros, a sua política e a trava que protege ambos.
+     */
+    private final class Listra {
+        final ReentrantLock trava = new ReentrantLock();
+        final ByteBuffer[] quadros;
+        final int[] paginaDoQuadro;
+        final Politica politica;
+        // Pilha de quadros ainda não usados
+        final int[] livres;
+        int numeroLivres;
+        long acertos;
+        long faltas;
+
+        Listra(ByteBuffer slab, int primeiroQuadro, int numeroQuadros, Politica politica) {
+            this.politica = politica;
+            quadros = new ByteBuffer[numeroQuadros];
+            paginaDoQuadro = new int[numeroQuadros];
+            livres = new int[numeroQuadros];
+            for (int q = 0; q < numeroQuadros; q++) {
+                quadros[q] = slab.slice((primeiroQuadro + q) * TAMANHO_PAGINA, TAMANHO_PAGINA);
+                livres[q] = numeroQuadros - 1 - q;
+            }
+            numeroLivres = numeroQuadros;
+        }
+
+        boolean ler(int pagina, byte[] destino) throws IOException {
+            politica.registrarAcesso(pagina);
+            int quadro = quadroDaPagina[pagina];
+            if (quadro >= 0) {
+                acertos++;
+                politica.acessou(quadro);
+                quadros[quadro].get(0, destino, 0, TAMANHO_PAGINA);
+                return true;
+            }
+
+            faltas++;
+            if (numeroLivres > 0) {
+                quadro = livres[--numeroLivres];
+            } else {
+                quadro = politica.escolherVitima();
+                quadroDaPagina[paginaDoQuadro[quadro]] = -1;
+            }
+            ByteBuffer buffer = quadros[quadro];
+            buffer.clear();
+            long posicao = (long) pagina * TAMANHO_PAGINA;
+            try {
+                while (buffer.hasRemaining() && canal.read(buffer, posicao + buffer.position()) > 0) {
+                    // continua até ler a página inteira
+                }
+                if (buffer.hasRemaining()) {
+                    // O arquivo encolheu (ou a leitura parou antes do fim da página)
+                    throw new EOFException("Página " + pagina + " incompleta: " + buffer.position()
+                                           + " de " + TAMANHO_PAGINA + " bytes");
+                }
+            } catch (IOException e) {
+                livres[numeroLivres++] = quadro;
+                throw e;
+            }
+            paginaDoQuadro[quadro] = pagina;
+            quadroDaPagina[pagina] = quadro;
+            politica.inseriu(quadro, pagina);
+            buffer.get(0, destino, 0, TAMANHO_PAGINA);
+            return false;
+        }
+    }
+
+    /**
+     * Política de remoção sobre os quadros 0..n-1 de uma listra. Todos os métodos são
+     * chamados com a trava da listra.
+     */
+    interface Politica {
+        /** Toda leitura, acerto ou falta, antes de qualquer outro método. */
+        default void registrarAcesso(long pagina) {
+        }
+
+        /** A página do quadro foi lida de novo (acerto). */
+        void acessou(int quadro);
+
+        /** O quadro recebeu uma página nova. */
+        void inseriu(int quadro, long pagina);
+
+        /** Todos os quadros estão em uso: tira um da política e o retorna para ser reusado. */
+        int escolherVitima();
+    }
+
+    /**
+     * Lista duplamente ligada de quadros, da cabeça (mais recente) à cauda, guardada em
+     * arrays de int para não alocar um nó por página.
+     */
+    static class ListaLRU {
+        private final int[] anterior;
+        private final int[] proximo;
+        private int cabeca = -1;
+        private int cauda = -1;
+        private int tamanho;
+
+        ListaLRU(int quadros) {
+            anterior = new int[quadros];
+            proximo = new int[quadros];
+        }
+
+        void inserirNaCabeca(int q) {
+            anterior[q] = -1;
+            proximo[q] = cabeca;
+            if (cabeca >= 0) {
+                anterior[cabeca] = q;
+            } else {
+                cauda = q;
+            }
+            cabeca = q;
+            tamanho++;
+        }
+
+        void remover(int q) {
+            if (anterior[q] >= 0) {
+                proximo[anterior[q]] = proximo[q];
+            } else {
+                cabeca = proximo[q];
+            }
+            if (proximo[q] >= 0) {
+                anterior[proximo[q]] = anterior[q];
+            } else {
+                cauda = anterior[q];
+            }
+            tamanho--;
+        }
+
+        void moverParaCabeca(int q) {
+            if (q != cabeca) {
+                remover(q);
+                inserirNaCabeca(q);
+            }
+        }
+
+        int cauda() {
+            return cauda;
+        }
+
+        int tamanho() {
+            return tamanho;
+        }
+    }
+
+    static class Lru implements Politica {
+        private final ListaLRU lista;
+
+        Lru(int quadros) {
+            lista = new ListaLRU(quadros);
+        }
+
+        public void acessou(int quadro) {
+            lista.moverParaCabeca(quadro);
+        }
+
+        public void inseriu(int quadro, long pagina) {
+            lista.inserirNaCabeca(quadro);
+        }
+
+        public int escolherVitima() {
+            int vitima = lista.cauda();
+            lista.remover(vitima);
+            return vitima;
+        }
+    }
+
+    static class Clock implements Politica {
+        private final boolean[] referenciado;
+        private int ponteiro;
+
+        Clock(int quadros) {
+            referenciado = new boolean[quadros];
+        }
+
+        public void acessou(int quadro) {
+            referenciado[quadro] = true;
+        }
+
+        public void inseriu(int quadro, long pagina) {
+            referenciado[quadro] = true;
+        }
+
+        public int escolherVitima() {
+            // Segunda chance: desliga o bit das páginas referenciadas até achar uma que não foi
+            while (referenciado[ponteiro]) {
+                referenciado[ponteiro] = false;
+                ponteiro = (ponteiro + 1) % referenciado.length;
+            }
+            int vitima = ponteiro;
+            ponteiro = (ponteiro + 1) % referenciado.length;
+            return vitima;
+        }
+    }
+
+    static class WTinyLfu implements Politica {
+        private static final byte JANELA = 0, PROVA = 1, PROTEGIDA = 2;
+
+        private final ListaLRU janela;
+        private final ListaLRU prova;
+        private final ListaLRU protegida;
+        private final byte[] regiao;
+        private final long[] paginaDoQuadro;
+        private final SketchFrequencia sketch;
+        private final int capacidadeJanela;
+        private final int capacidadeProtegida;
+
+        WTinyLfu(int quadros) {
+            janela = new ListaLRU(quadros);
+            prova = new ListaLRU(quadros);
+            protegida = new ListaLRU(quadros);
+            regiao = new byte[quadros];
+            paginaDoQuadro = new long[quadros];
+            sketch = new SketchFrequencia(quadros);
+            capacidadeJanela = Math.max(1, quadros / 100);
+            capacidadeProtegida = (quadros - capacidadeJanela) * 80 / 100;
+        }
+
+        public void registrarAcesso(long pagina) {
+            sketch.incrementar(pagina);
+        }
+
+        public void acessou(int quadro) {
+            switch (regiao[quadro]) {
+                case JANELA:
+                    janela.moverParaCabeca(quadro);
+                    break;
+                case PROVA:
+                    // Segundo acesso no cache principal: promovida, e a protegida mais
+                    // antiga volta para a prova se a região passou do limite
+                    prova.remover(quadro);
+                    protegida.inserirNaCabeca(quadro);
+                    regiao[quadro] = PROTEGIDA;
+                    if (protegida.tamanho() > capacidadeProtegida) {
+                        int rebaixada = protegida.cauda();
+                        protegida.remover(rebaixada);
+                        prova.inserirNaCabeca(rebaixada);
+                        regiao[rebaixada] = PROVA;
+                    }
+                    break;
+                default:
+                    protegida.moverParaCabeca(quadro);
+            }
+        }
+
+        public void inseriu(int quadro, long pagina) {
+            paginaDoQuadro[quadro] = pagina;
+            janela.inserirNaCabeca(quadro);
+            regiao[quadro] = JANELA;
+            // Enquanto o cache enche, quem sai da janela entra na prova sem disputa
+            if (janela.tamanho() > capacidadeJanela) {
+                int candidata = janela.cauda();
+                janela.remover(candidata);
+                prova.inserirNaCabeca(candidata);
+                regiao[candidata] = PROVA;
+            }
+        }
+
+        public int escolherVitima() {
+            // Cache cheio: a mais antiga da janela (candidata) disputa a vaga com a mais
+            // antiga do cache principal; fica a que foi acessada mais vezes
+            int candidata = janela.cauda();
+            ListaLRU principal = prova.tamanho() > 0 ? prova : protegida;
+            int vitima = principal.cauda();
+            janela.remover(candidata);
+            if (vitima < 0 || sketch.frequencia(paginaDoQuadro[candidata]) <= sketch.frequencia(paginaDoQuadro[vitima])) {
+                return candidata;
+            }
+            principal.remover(vitima);
+            prova.inserirNaCabeca(candidata);
+            regiao[candidata] = PROVA;
+            return vitima;
+        }
+    }
+
+    /**
+     * Count-Min Sketch com 4 linhas de contadores de 4 bits (até 15, guardados em bytes):
+     * a frequência estimada de uma chave é o menor dos seus 4 contadores. A cada 10 x
+     * 'capacidade' incrementos todos os contadores são divididos por 2 (envelhecimento).
+     */
+    static class SketchFrequencia {
+        private static final int LINHAS = 4;
+        private static final long[] SEMENTES = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL,
+                                                0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+        private final byte[][] contadores = new byte[LINHAS][];
+        private final int mascara;
+        private final int limiteIncrementos;
+        private int incrementos;
+
+        SketchFrequencia(int capacidade) {
+            int largura = Integer.highestOneBit(Math.max(16, capacidade * 2 - 1)) << 1;
+            for (int l = 0; l < LINHAS; l++) {
+                contadores[l] = new byte[largura];
+            }
+            mascara = largura - 1;
+            limiteIncrementos = 10 * Math.max(16, capacidade);
+        }
+
+        private int indice(long chave, int linha) {
+            long h = (chave + SEMENTES[linha]) * 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+            return (int) h & mascara;
+        }
+
+        void incrementar(long chave) {
+            for (int l = 0; l < LINHAS; l++) {
+                int i = indice(chave, l);
+                if (contadores[l][i] < 15) {
+                    contadores[l][i]++;
+                }
+            }
+            if (++incrementos >= limiteIncrementos) {
+                for (byte[] linha : contadores) {
+                    for (int i = 0; i < linha.length; i++) {
+                        linha[i] >>= 1;
+                    }
+                }
+                incrementos /= 2;
+            }
+        }
+
+        int frequencia(long chave) {
+            int minimo = 15;
+            for (int l = 0; l < LINHAS; l++) {
+                minimo = Math.min(minimo, contadores[l][indice(chave, l)]);
+            }
+            return minimo;
+        }
+    }
+
+    /**
+     * Sorteia 'quantidade' páginas entre 0 e paginas - 1. Na Zipf a página 0 é a mais
+     * popular.
+     */
+    static int[] sortearPaginas(String distribuicao, long paginas, int quantidade, long semente) {
+        int[] sorteadas = new int[quantidade];
+        switch (distribuicao) {
+            case "uniforme": {
+                SplittableRandom random = new SplittableRandom(semente);
+                for (int i = 0; i < quantidade; i++) {
+                    sorteadas[i] = (int) random.nextLong(paginas);
+                }
+                break;
+            }
+            case "zipf": {
+                DistribuicaoZipf zipf = new DistribuicaoZipf(paginas, semente);
+                for (int i = 0; i < quantidade; i++) {
+                    sorteadas[i] = (int) zipf.proximo();
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Distribuição desconhecida: " + distribuicao);
+        }
+        return sorteadas;
+    }
+
+    /**
+     * Cada thread lê a sua sequência de páginas pelo cache, registrando a latência de cada
+     * leitura. Retorna o histograma de todas as threads; a duração total fica em
+     * nanosTotais[0].
+     */
+    static Histograma executar(CacheDeBlocos cache, int[][] sequencias, ExecutorService executor,
+                               long[] nanosTotais) throws Exception {
+        List<Callable<Histograma>> tarefas = new ArrayList<>();
+        for (int[] sequencia : sequencias) {
+            tarefas.add(() -> {
+                Histograma histograma = new Histograma();
+                byte[] destino = new byte[TAMANHO_PAGINA];
+                long soma = 0;
+                for (int pagina : sequencia) {
+                    long inicio = System.nanoTime();
+                    cache.ler(pagina, destino);
+                    soma += destino[0];
+                    histograma.registrar(System.nanoTime() - inicio);
+                }
+                Medicao.buracoNegro = soma;
+                return histograma;
+            });
+        }
+        long inicio = System.nanoTime();
+        List<Future<Histograma>> resultados = executor.invokeAll(tarefas);
+        nanosTotais[0] = System.nanoTime() - inicio;
+        Histograma total = new Histograma();
+        for (Future<Histograma> resultado : resultados) {
+            total.juntar(resultado.get());
+        }
+        return total;
+    }
+
+    private static final int[] ORCAMENTOS_PERCENTUAIS = {1, 5, 10, 25};
+
+    public static void main(String[] args) throws Exception {
+        int tamanhoMB = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+        int leituras = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        File arquivo = new File("cache_blocos.dat");
+        if (arquivo.length() != tamanhoMB * 1024L * 1024L) {
+            System.out.printf("Criando arquivo de %d MB...\n", tamanhoMB);
+            RAMvsDisco.criarArquivoTemporario(arquivo, tamanhoMB * 1024L * 1024L);
+        }
+        long paginas = arquivo.length() / TAMANHO_PAGINA;
+
+        System.out.printf("Cache de páginas de %d bytes sobre um arquivo de %d MB; %d thread(s) x %d leituras\n",
+                          TAMANHO_PAGINA, tamanhoMB, threads, leituras);
+        // Uma só memória, do tamanho do maior orçamento, reaproveitada por todos os caches:
+        // alocar um ByteBuffer direto por configuração deixaria a liberação para o coletor
+        int maiorPercentual = Arrays.stream(ORCAMENTOS_PERCENTUAIS).max().getAsInt();
+        ByteBuffer memoria = alocar(arquivo.length() * maiorPercentual / 100);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (String distribuicao : DISTRIBUICOES) {
+                // Uma sequência para encher o cache e outra, diferente, para medir
+                int[][] aquecimento = new int[threads][];
+                int[][] medidas = new int[threads][];
+                for (int t = 0; t < threads; t++) {
+                    aquecimento[t] = sortearPaginas(distribuicao, paginas, leituras, 1000 + t);
+                    medidas[t] = sortearPaginas(distribuicao, paginas, leituras, 42 + t);
+                }
+
+                System.out.println("\nCarga " + distribuicao.toUpperCase());
+                System.out.println("-------------------------------------------------------------------------------------------------------------------");
+                System.out.printf("%9s %-8s | %8s | %12s | %s\n", "Orçamento", "Política", "Acertos", "Leituras/s", "Latência");
+                for (int percentual : ORCAMENTOS_PERCENTUAIS) {
+                    long orcamento = arquivo.length() * percentual / 100;
+                    ByteBuffer fatia = memoria.slice(0, (int) (orcamento / TAMANHO_PAGINA * TAMANHO_PAGINA));
+                    for (String politica : POLITICAS) {
+                        try (CacheDeBlocos cache = new CacheDeBlocos(arquivo, fatia, politica)) {
+                            long[] nanos = new long[1];
+                            executar(cache, aquecimento, executor, nanos);
+                            cache.zerarContadores();
+                            Histograma h = executar(cache, medidas, executor, nanos);
+                            System.out.printf("%8d%% %-8s | %7.2f%% | %12.0f | %s\n", percentual, politica,
+                                              100 * cache.taxaAcertos(), h.total() / (nanos[0] / 1e9), h.resumoMicros());
+                        }
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        System.out.println();
+    }
+}
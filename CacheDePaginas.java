@@ -0,0 +1,163 @@
+/*
+
+Controle do cache de páginas do S.O. para o experimento RAMvsDisco.
+
+O S.O. guarda na RAM as páginas dos arquivos lidos ou escritos recentemente (o "cache de
+páginas"). Por isso, ler logo depois de criar o arquivo não mede o disco: mede a RAM. Para
+uma leitura realmente "fria" precisamos tirar o arquivo do cache antes de medir.
+
+O Java não oferece isso diretamente, então tentamos, nesta ordem:
+1. posix_fadvise(POSIX_FADV_DONTNEED) no arquivo. O comando "dd iflag=nocache count=0"
+   do GNU coreutils faz exatamente essa chamada para o arquivo inteiro. Antes disso o
+   arquivo é sincronizado (fsync), pois páginas ainda não gravadas não podem ser
+   descartadas.
+2. Escrever "1" em /proc/sys/vm/drop_caches (descarta todo o cache limpo do sistema;
+   exige root).
+3. Ler um arquivo de preenchimento maior que a RAM, empurrando o nosso arquivo para fora
+   do cache. É lento (uma passada por mais que a RAM a cada esvaziamento) e ocupa no disco
+   mais que a RAM, por isso só é usado com -Dcache.preencher=true. O arquivo é criado uma
+   vez por execução (prepararPreenchimento) e apagado quando a JVM termina.
+
+Além disso, lerComODirect lê o arquivo com O_DIRECT (ExtendedOpenOption.DIRECT), que
+ignora completamente o cache de páginas, onde o sistema de arquivos suporta.
+
+*/
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import com.sun.management.OperatingSystemMXBean;
+import com.sun.nio.file.ExtendedOpenOption;
+
+public class CacheDePaginas {
+
+    private static final File PREENCHIMENTO = new File("preenchimento_cache.dat");
+    private static final int TAMANHO_BUFFER_DIRETO = 1024 * 1024; // 1 MB
+
+    // O arquivo de preenchimento só é usado se pedido explicitamente
+    public static final boolean PREENCHER = Boolean.getBoolean("cache.preencher");
+    // Buffer de leitura do preenchimento; criado por prepararPreenchimento
+    private static ByteBuffer bufferPreenchimento;
+
+    /**
+     * Tenta tirar o arquivo do cache de páginas. Retorna uma descrição do método que
+     * funcionou, ou null se nenhum dos métodos rápidos funcionou.
+     */
+    public static String esvaziar(File arquivo) {
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException e) {
+            // Sem o fsync, só as páginas ainda não gravadas ficam no cache; os métodos
+            // abaixo continuam valendo para o resto do arquivo
+        }
+
+        if (executar(Arrays.asList("dd", "if=" + arquivo.getAbsolutePath(), "iflag=nocache", "count=0"))) {
+            return "posix_fadvise(DONTNEED)";
+        }
+
+        try (FileOutputStream dropCaches = new FileOutputStream("/proc/sys/vm/drop_caches")) {
+            dropCaches.write('1');
+            return "drop_caches";
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Com -Dcache.preencher=true, cria o arquivo de preenchimento (1,25x a RAM) se ele ainda
+     * não existe e o buffer de leitura. Deve ser chamado uma vez, antes das medições; o
+     * arquivo criado aqui é apagado quando a JVM termina. Sem a propriedade, não faz nada.
+     */
+    public static synchronized void prepararPreenchimento() throws IOException {
+        if (!PREENCHER || bufferPreenchimento != null) {
+            return;
+        }
+        OperatingSystemMXBean so = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        long tamanho = so.getTotalMemorySize() + so.getTotalMemorySize() / 4;
+        if (PREENCHIMENTO.length() < tamanho) {
+            Runtime.getRuntime().addShutdownHook(new Thread(PREENCHIMENTO::delete));
+            System.out.printf("Criando arquivo de preenchimento de %d MB (maior que a RAM)...\n",
+                              tamanho / (1024 * 1024));
+            RAMvsDisco.criarArquivoTemporario(PREENCHIMENTO, tamanho);
+        }
+        bufferPreenchimento = ByteBuffer.allocateDirect(TAMANHO_BUFFER_DIRETO);
+    }
+
+    /**
+     * Esvazia o cache com esvaziar() e, se não der certo e -Dcache.preencher=true, lê o
+     * arquivo de preenchimento. Retorna null se o arquivo continua no cache.
+     */
+    public static String esvaziarOuPreencher(File arquivo) throws IOException {
+        String metodo = esvaziar(arquivo);
+        if (metodo != null || !PREENCHER) {
+            return metodo;
+        }
+        prepararPreenchimento();
+        synchronized (CacheDePaginas.class) {
+            bufferPreenchimento.clear();
+            LeitoresArquivo.lerComCanal(PREENCHIMENTO, bufferPreenchimento);
+        }
+        return "arquivo de preenchimento maior que a RAM";
+    }
+
+    /**
+     * Lê o arquivo inteiro com O_DIRECT. O buffer e as posições precisam estar alinhados
+     * ao tamanho de bloco do sistema de arquivos. Retorna -1 se O_DIRECT não for suportado.
+     */
+    public static long lerComODirect(File arquivo) throws IOException {
+        int bloco = (int) Files.getFileStore(arquivo.toPath()).getBlockSize();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BUFFER_DIRETO + bloco).alignedSlice(bloco);
+        long bytesLidos = 0;
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ,
+                                                  ExtendedOpenOption.DIRECT)) {
+            int lidos;
+            while ((lidos = canal.read(buffer)) > 0) {
+                bytesLidos += lidos;
+                buffer.clear();
+            }
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        } catch (IOException e) {
+            // Alguns sistemas de arquivos (ex: tmpfs) recusam O_DIRECT ao abrir o arquivo
+            if (bytesLidos == 0) {
+                return -1;
+            }
+            throw e;
+        }
+        return bytesLidos;
+    }
+
+    /**
+     * Número de bytes do arquivo que estão no cache de páginas, segundo o comando fincore
+     * (util-linux). Retorna -1 se o comando não estiver disponível.
+     */
+    public static long bytesNoCache(File arquivo) {
+        try {
+            List<String> saida = Medicao.executarComando(
+                    Arrays.asList("fincore", "-b", "-n", "-o", "RES", arquivo.getAbsolutePath()));
+            return saida.isEmpty() ? -1 : Long.parseLong(saida.get(0).trim());
+        } catch (IOException | InterruptedException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean executar(List<String> comando) {
+        try {
+            Process processo = new ProcessBuilder(comando)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            return processo.waitFor() == 0;
+        } catch (IOException | InterruptedException e) {
+            return false;
+        }
+    }
+}
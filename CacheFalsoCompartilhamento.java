@@ -0,0 +1,143 @@
+/*
+
+Experimento: Falso Compartilhamento (False Sharing)
+
+Em CacheTamanhoLinha vimos que a memória é trazida para o cache em linhas de 64 bytes.
+Com várias threads isso tem um efeito colateral: os núcleos mantêm seus caches coerentes
+POR LINHA, não por variável. Se duas threads escrevem em variáveis DIFERENTES que moram na
+MESMA linha de cache, cada escrita invalida a cópia da linha no cache do outro núcleo, e a
+linha fica "pingando" de um núcleo para o outro. As threads não compartilham nenhum dado,
+mas pagam como se compartilhassem: por isso o nome "falso" compartilhamento.
+
+Neste experimento N threads incrementam cada uma o SEU contador:
+- ADJACENTE: contadores vizinhos em um long[] (8 bytes de distância, mesma linha).
+- PAD 64:    contadores a 64 bytes de distância (uma linha de cache para cada).
+- PAD 128:   contadores a 128 bytes de distância (alguns processadores trazem linhas
+             em pares, o "adjacent line prefetch", então 64 bytes podem não bastar).
+- @Contended: cada contador é um campo marcado com @Contended, e a própria JVM insere o
+             espaçamento. Só funciona com a opção -XX:-RestrictContended; se ela não foi
+             passada, este caso é executado em uma nova JVM com a opção.
+
+*/
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.List;
+
+import jdk.internal.vm.annotation.Contended;
+
+public class CacheFalsoCompartilhamento {
+
+    private static final int INCREMENTOS_POR_THREAD = 20_000_000;
+    private static final String OPCAO_CONTENDED = "-XX:-RestrictContended";
+
+    private static final VarHandle ELEMENTO = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle VALOR;
+
+    static {
+        try {
+            VALOR = MethodHandles.lookup().findVarHandle(ContadorIsolado.class, "valor", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Contador em um objeto próprio; a JVM afasta o campo dos vizinhos com @Contended.
+     */
+    static class ContadorIsolado {
+        @Contended
+        volatile long valor;
+    }
+
+    /**
+     * Cada thread incrementa a posição 'thread * espacamento' do array compartilhado.
+     * Retorna o número de incrementos por segundo (somando todas as threads).
+     */
+    public static double medirArray(int threads, int espacamento) throws InterruptedException {
+        long[] contadores = new long[threads * espacamento];
+        return executar(threads, t -> {
+            int indice = t * espacamento;
+            for (int i = 0; i < INCREMENTOS_POR_THREAD; i++) {
+                ELEMENTO.getAndAdd(contadores, indice, 1L);
+            }
+        });
+    }
+
+    /**
+     * Cada thread incrementa o seu próprio objeto ContadorIsolado.
+     */
+    public static double medirContended(int threads) throws InterruptedException {
+        ContadorIsolado[] contadores = new ContadorIsolado[threads];
+        for (int t = 0; t < threads; t++) {
+            contadores[t] = new ContadorIsolado();
+        }
+        return executar(threads, t -> {
+            ContadorIsolado contador = contadores[t];
+            for (int i = 0; i < INCREMENTOS_POR_THREAD; i++) {
+                VALOR.getAndAdd(contador, 1L);
+            }
+        });
+    }
+
+    interface Trabalho {
+        void executar(int thread);
+    }
+
+    private static double executar(int threads, Trabalho trabalho) throws InterruptedException {
+        Thread[] ts = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            ts[t] = new Thread(() -> trabalho.executar(id));
+        }
+        long inicio = System.nanoTime();
+        for (Thread t : ts) {
+            t.start();
+        }
+        for (Thread t : ts) {
+            t.join();
+        }
+        long fim = System.nanoTime();
+        return (double) threads * INCREMENTOS_POR_THREAD / ((fim - inicio) / 1e9);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0])
+                                      : Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        // Modo usado quando o caso @Contended é executado em uma nova JVM
+        if (args.length > 1 && args[1].equals("--contended")) {
+            medirContended(threads); // Aquecimento
+            System.out.println(medirContended(threads));
+            return;
+        }
+
+        System.out.println("Falso compartilhamento com " + threads + " threads, " +
+                           INCREMENTOS_POR_THREAD + " incrementos por thread");
+        System.out.println("-------------------------------------------------------------------------");
+
+        // Aquecimento
+        medirArray(threads, 1);
+        medirArray(threads, 8);
+
+        double adjacente = medirArray(threads, 1);
+        System.out.printf("ADJACENTE  (8 bytes):   %8.2f milhões de op/s\n", adjacente / 1e6);
+        double pad64 = medirArray(threads, 64 / Long.BYTES);
+        System.out.printf("PAD 64     (64 bytes):  %8.2f milhões de op/s (%.2fx)\n", pad64 / 1e6, pad64 / adjacente);
+        double pad128 = medirArray(threads, 128 / Long.BYTES);
+        System.out.printf("PAD 128    (128 bytes): %8.2f milhões de op/s (%.2fx)\n", pad128 / 1e6, pad128 / adjacente);
+
+        double contended;
+        if (ManagementFactory.getRuntimeMXBean().getInputArguments().contains(OPCAO_CONTENDED)) {
+            medirContended(threads); // Aquecimento
+            contended = medirContended(threads);
+        } else {
+            List<String> saida = Medicao.executarEmNovaJVM(Collections.singletonList(OPCAO_CONTENDED),
+                    "CacheFalsoCompartilhamento", List.of(String.valueOf(threads), "--contended"));
+            contended = Double.parseDouble(saida.get(saida.size() - 1));
+        }
+        System.out.printf("@Contended:             %8.2f milhões de op/s (%.2fx)\n\n", contended / 1e6, contended / adjacente);
+    }
+}
@@ -26,23 +26,49 @@ após a primeira linha na memória, e assim por diante.
 Exemplo: matriz[0][0], matriz[0][1], ..., matriz[0][N], matriz[1][0], matriz[1][1], ...
 
 
+Varredura em Blocos (Tiling)
+Muitos algoritmos precisam visitar a matriz "por coluna" (ex: transposição, multiplicação de
+matrizes). Em vez de descer a coluna inteira de uma vez, dividimos a matriz em blocos
+(ladrilhos) de B x B elementos e percorremos cada bloco por coluna. Dentro de um bloco, as
+B linhas de cache tocadas na primeira coluna ainda estão no cache quando visitamos a segunda
+coluna, a terceira, etc. Assim, a ordem "por coluna" passa a ter desempenho próximo ao da
+ordem "por linha", desde que o bloco caiba no cache (L1 ou L2).
+
+
 */
 
 
+import java.util.Arrays;
+
 public class CacheLocalidadeEspacial {
 
-    // Vamos definir um tamanho grande o suficiente para exceder o cache da CPU   
-    static final int LINHAS = 10_000;
-    static final int COLUNAS = 10_000;
-    static final int[][] matriz = new int[LINHAS][COLUNAS];
+    // Vamos definir um tamanho grande o suficiente para exceder o cache da CPU
+    // (pode ser trocado com -Despacial.tamanho=N ou pelo Main)
+    static final int LINHAS = Integer.getInteger("espacial.tamanho", 10_000);
+    static final int COLUNAS = LINHAS;
 
-    // Inicializa a matriz com valores aleatórios para que o compilador não otimize tudo.
-    static {
-        for (int i = 0; i < LINHAS; i++) {
-            for (int j = 0; j < COLUNAS; j++) {
-                matriz[i][j] = (int) (Math.random() * 100);
-            }
-        }
+    // A matriz só é criada no primeiro uso (quando a classe Dados é carregada), para que
+    // quem só usa os métodos com parâmetros não pague os 400 MB.
+    private static class Dados {
+        static final int[][] matriz = criarMatriz(LINHAS, COLUNAS);
+    }
+
+    // Tamanhos de bloco testados pelo ajuste automático. Um bloco B x B de ints ocupa
+    // B * B * 4 bytes: 64 -> 16 KB (cabe no L1), 256 -> 256 KB (cabe no L2), 1024 -> 4 MB (L3).
+    static final int[] BLOCOS_CANDIDATOS = {16, 32, 64, 128, 256, 512, 1024};
+
+    /**
+     * Cria uma matriz com valores aleatórios para que o compilador não otimize tudo.
+     */
+    public static int[][] criarMatriz(int linhas, int colunas) {
+        return DadosAleatorios.matriz(linhas, colunas, 100, DadosAleatorios.SEMENTE_PADRAO);
+    }
+
+    /**
+     * A matriz padrão (LINHAS x COLUNAS), criada no primeiro acesso.
+     */
+    public static int[][] matriz() {
+        return Dados.matriz;
     }
 
     /**
@@ -50,29 +76,100 @@ public class CacheLocalidadeEspacial {
      * Isso maximiza os "cache hits".
      */
     public static long percorrerPorLinha() {
+        return percorrerPorLinha(Dados.matriz);
+    }
+
+    public static long percorrerPorLinha(int[][] m) {
         long soma = 0; // Usamos a soma para forçar a leitura do valor
-        for (int i = 0; i < LINHAS; i++) {
-            for (int j = 0; j < COLUNAS; j++) {
-                soma += matriz[i][j];
+        for (int i = 0; i < m.length; i++) {
+            for (int j = 0; j < m[i].length; j++) {
+                soma += m[i][j];
             }
         }
         return soma;
     }
 
+    /**
+     * Igual a percorrerPorLinha, mas soma cada linha com o kernel vetorial (SIMD).
+     */
+    public static long percorrerPorLinhaVetorial(int[][] m) {
+        long soma = 0;
+        for (int i = 0; i < m.length; i++) {
+            soma += KernelsSoma.somarInts(m[i]);
+        }
+        return soma;
+    }
+
     /**
      * Percorre a matriz "pulando" na memória.
      * Isso causa um grande número de "cache misses".
      */
     public static long percorrerPorColuna() {
+        return percorrerPorColuna(Dados.matriz);
+    }
+
+    public static long percorrerPorColuna(int[][] m) {
         long soma = 0; // Usamos a soma para forçar a leitura do valor
-        for (int j = 0; j < COLUNAS; j++) {
-            for (int i = 0; i < LINHAS; i++) {
-                soma += matriz[i][j];
+        int colunas = m.length == 0 ? 0 : m[0].length;
+        for (int j = 0; j < colunas; j++) {
+            for (int i = 0; i < m.length; i++) {
+                soma += m[i][j];
             }
         }
         return soma;
     }
 
+    public static long percorrerPorBlocos(int bloco) {
+        return percorrerPorBlocos(Dados.matriz, bloco);
+    }
+
+    /**
+     * Percorre a matriz por coluna, mas dentro de blocos de 'bloco' x 'bloco' elementos.
+     * As linhas de cache trazidas na primeira coluna do bloco são reaproveitadas nas
+     * colunas seguintes, antes de serem expulsas do cache.
+     */
+    public static long percorrerPorBlocos(int[][] m, int bloco) {
+        if (bloco < 1) {
+            throw new IllegalArgumentException("Bloco deve ser maior que zero: " + bloco);
+        }
+        long soma = 0; // Usamos a soma para forçar a leitura do valor
+        int linhas = m.length;
+        int colunas = linhas == 0 ? 0 : m[0].length;
+        for (int ii = 0; ii < linhas; ii += bloco) {
+            int fimI = Math.min(ii + bloco, linhas);
+            for (int jj = 0; jj < colunas; jj += bloco) {
+                int fimJ = Math.min(jj + bloco, colunas);
+                for (int j = jj; j < fimJ; j++) {
+                    for (int i = ii; i < fimI; i++) {
+                        soma += m[i][j];
+                    }
+                }
+            }
+        }
+        return soma;
+    }
+
+    /**
+     * Mede cada tamanho de bloco candidato e retorna o mais rápido nesta máquina.
+     */
+    public static int ajustarTamanhoBloco(int[][] m) {
+        int melhorBloco = BLOCOS_CANDIDATOS[0];
+        double melhorTempo = Double.MAX_VALUE;
+        for (int bloco : BLOCOS_CANDIDATOS) {
+            percorrerPorBlocos(m, bloco); // Aquecimento
+            long inicio = System.nanoTime();
+            percorrerPorBlocos(m, bloco);
+            double duracaoMs = (System.nanoTime() - inicio) / 1_000_000.0;
+            System.out.printf("  Bloco %4d x %-4d (%6d KB): %.2f ms\n",
+                              bloco, bloco, (long) bloco * bloco * Integer.BYTES / 1024, duracaoMs);
+            if (duracaoMs < melhorTempo) {
+                melhorTempo = duracaoMs;
+                melhorBloco = bloco;
+            }
+        }
+        return melhorBloco;
+    }
+
     public static void main(String[] args) {
         System.out.println("Iniciando análise de tempo de execução para uma matriz " + 
                             LINHAS + " x"  + COLUNAS);
@@ -85,35 +182,87 @@ public class CacheLocalidadeEspacial {
         System.out.println("Aquecendo a JVM...");
         percorrerPorLinha();
         percorrerPorColuna();        
+        System.out.println(ContadoresHardware.situacao());
+        System.out.println("----------------------------------------------------------");
+
+        // --- Ajuste automático do tamanho do bloco ---
+        System.out.println("Procurando o melhor tamanho de bloco...");
+        int bloco = ajustarTamanhoBloco(Dados.matriz);
+        System.out.printf("Melhor bloco: %d x %d\n", bloco, bloco);
         System.out.println("----------------------------------------------------------");
 
 
         // --- Medição do Tempo de Execução ---
 
         // Teste 1: Varredura por Linha (Cache-Friendly)
+        MetricasGC.Instantaneo gcAntes = MetricasGC.agora();
         long inicioLinha = System.nanoTime();
         long somaLinha = percorrerPorLinha();
         long fimLinha = System.nanoTime();
+        MetricasGC.Trecho gcLinha = gcAntes.ate(MetricasGC.agora());
         double duracaoLinhaMs = (fimLinha - inicioLinha) / 1_000_000.0;
         System.out.printf("Tempo para percorrer por LINHA: %.2f ms\n", duracaoLinhaMs);
+        System.out.println("    " + gcLinha.resumo());
+        ContadoresHardware.imprimir(() -> percorrerPorLinha(), (long) LINHAS * COLUNAS);
+
+
+        // Teste 1b: Varredura por Linha com soma vetorial (SIMD)
+        if (KernelsSoma.VETORIAL_DISPONIVEL) {
+            percorrerPorLinhaVetorial(Dados.matriz); // Aquecimento
+            long inicioVetorial = System.nanoTime();
+            long somaVetorial = percorrerPorLinhaVetorial(Dados.matriz);
+            double duracaoVetorialMs = (System.nanoTime() - inicioVetorial) / 1_000_000.0;
+            System.out.printf("Tempo para percorrer por LINHA (vetorial): %.2f ms (%.2fx)%s\n",
+                              duracaoVetorialMs, duracaoLinhaMs / duracaoVetorialMs,
+                              somaVetorial == somaLinha ? "" : " (SOMA DIFERENTE!)");
+        }
 
 
         // Teste 2: Varredura por Coluna (Cache-Unfriendly)
+        gcAntes = MetricasGC.agora();
         long inicioColuna = System.nanoTime();
         long somaColuna = percorrerPorColuna();
         long fimColuna = System.nanoTime();
+        MetricasGC.Trecho gcColuna = gcAntes.ate(MetricasGC.agora());
         double duracaoColunaMs = (fimColuna - inicioColuna) / 1_000_000.0;
         System.out.printf("Tempo para percorrer por COLUNA: %.2f ms\n", duracaoColunaMs);
+        System.out.println("    " + gcColuna.resumo());
+        ContadoresHardware.imprimir(() -> percorrerPorColuna(), (long) LINHAS * COLUNAS);
+
+        // Teste 3: Varredura por Coluna em Blocos (Cache-Friendly)
+        gcAntes = MetricasGC.agora();
+        long inicioBlocos = System.nanoTime();
+        long somaBlocos = percorrerPorBlocos(bloco);
+        long fimBlocos = System.nanoTime();
+        MetricasGC.Trecho gcBlocos = gcAntes.ate(MetricasGC.agora());
+        double duracaoBlocosMs = (fimBlocos - inicioBlocos) / 1_000_000.0;
+        System.out.printf("Tempo para percorrer por BLOCOS de %d: %.2f ms\n", bloco, duracaoBlocosMs);
+        System.out.println("    " + gcBlocos.resumo());
+        ContadoresHardware.imprimir(() -> percorrerPorBlocos(bloco), (long) LINHAS * COLUNAS);
 
         // Usamos as somas para garantir que o compilador não otimize os loops
         // removendo-os completamente.
-        if (somaLinha != somaColuna) {
+        if (somaLinha != somaColuna || somaLinha != somaBlocos) {
              System.out.println("As somas não batem, algo está muito errado!");
         }
 
         System.out.printf("Percorrendo por coluna demorou %.2f vezes mais!\n\n", 
                           duracaoColunaMs/duracaoLinhaMs);
 
+        // Classificação das três varreduras, da mais rápida para a mais lenta
+        String[] nomes = {"LINHA", "COLUNA", "BLOCOS"};
+        double[] duracoes = {duracaoLinhaMs, duracaoColunaMs, duracaoBlocosMs};
+        Integer[] ordem = {0, 1, 2};
+        Arrays.sort(ordem, (x, y) -> Double.compare(duracoes[x], duracoes[y]));
+        System.out.println("Classificação:");
+        for (int k = 0; k < ordem.length; k++) {
+            int idx = ordem[k];
+            System.out.printf("  %d. %-6s %10.2f ms  (%.2fx em relação à mais rápida, %.2fx mais rápida que COLUNA)\n",
+                              k + 1, nomes[idx], duracoes[idx], duracoes[idx] / duracoes[ordem[0]],
+                              duracaoColunaMs / duracoes[idx]);
+        }
+        System.out.println();
+
 
     }
 
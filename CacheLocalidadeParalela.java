@@ -0,0 +1,137 @@
+/*
+
+Experimento: Varredura Paralela da Matriz e a Largura de Banda da Memória
+
+Em CacheLocalidadeEspacial a matriz é percorrida por uma única thread. Com várias
+threads, cada núcleo tem seus próprios caches L1 e L2, mas todos dividem o L3 e os
+canais de memória. Enquanto o gargalo for o cálculo, dobrar as threads deve quase dobrar
+a vazão. Quando o gargalo passa a ser a memória, adicionar threads não ajuda mais: a
+eficiência (aceleração / número de threads) despenca.
+
+A matriz é dividida em faixas e cada faixa é uma tarefa do ForkJoinPool:
+- Por LINHA: faixas de linhas, cada tarefa percorre suas linhas na ordem da memória.
+- Por COLUNA: faixas de colunas, cada tarefa desce suas colunas (o caso ruim).
+
+O experimento roda com 1, 2, ..., N threads e imprime vazão (GB/s) e eficiência.
+
+*/
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class CacheLocalidadeParalela {
+
+    // Abaixo deste tamanho de faixa a tarefa não é mais dividida
+    private static final int FAIXA_MINIMA = 64;
+
+    /**
+     * Soma uma faixa de linhas [inicio, fim), dividindo-a ao meio enquanto for grande.
+     */
+    static class FaixaDeLinhas extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[][] m;
+        private final int inicio, fim;
+
+        FaixaDeLinhas(int[][] m, int inicio, int fim) {
+            this.m = m;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected Long compute() {
+            if (fim - inicio <= FAIXA_MINIMA) {
+                long soma = 0;
+                for (int i = inicio; i < fim; i++) {
+                    for (int j = 0; j < m[i].length; j++) {
+                        soma += m[i][j];
+                    }
+                }
+                return soma;
+            }
+            int meio = (inicio + fim) >>> 1;
+            FaixaDeLinhas esquerda = new FaixaDeLinhas(m, inicio, meio);
+            esquerda.fork();
+            long direita = new FaixaDeLinhas(m, meio, fim).compute();
+            return esquerda.join() + direita;
+        }
+    }
+
+    /**
+     * Soma uma faixa de colunas [inicio, fim), descendo cada coluna (acesso com salto).
+     */
+    static class FaixaDeColunas extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[][] m;
+        private final int inicio, fim;
+
+        FaixaDeColunas(int[][] m, int inicio, int fim) {
+            this.m = m;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected Long compute() {
+            if (fim - inicio <= FAIXA_MINIMA) {
+                long soma = 0;
+                for (int j = inicio; j < fim; j++) {
+                    for (int i = 0; i < m.length; i++) {
+                        soma += m[i][j];
+                    }
+                }
+                return soma;
+            }
+            int meio = (inicio + fim) >>> 1;
+            FaixaDeColunas esquerda = new FaixaDeColunas(m, inicio, meio);
+            esquerda.fork();
+            long direita = new FaixaDeColunas(m, meio, fim).compute();
+            return esquerda.join() + direita;
+        }
+    }
+
+    public static long percorrerPorLinhaParalelo(int[][] m, ForkJoinPool pool) {
+        return pool.invoke(new FaixaDeLinhas(m, 0, m.length));
+    }
+
+    public static long percorrerPorColunaParalelo(int[][] m, ForkJoinPool pool) {
+        return pool.invoke(new FaixaDeColunas(m, 0, m.length == 0 ? 0 : m[0].length));
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[][] m = CacheLocalidadeEspacial.matriz();
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0])
+                                         : Runtime.getRuntime().availableProcessors();
+        long bytes = (long) m.length * m[0].length * Integer.BYTES;
+
+        System.out.println("Varredura paralela de uma matriz " + m.length + " x " + m[0].length +
+                           " (" + bytes / (1024 * 1024) + " MB) com 1 a " + maxThreads + " threads");
+        System.out.println("-------------------------------------------------------------------------");
+        System.out.println("Threads |  LINHA ms   GB/s  Efic. | COLUNA ms   GB/s  Efic.");
+
+        double linhaUmaThread = 0, colunaUmaThread = 0;
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                double linhaMs = Medicao.media(Medicao.medir(2, 5,
+                        () -> percorrerPorLinhaParalelo(m, pool))) / 1_000_000.0;
+                double colunaMs = Medicao.media(Medicao.medir(1, 3,
+                        () -> percorrerPorColunaParalelo(m, pool))) / 1_000_000.0;
+                if (threads == 1) {
+                    linhaUmaThread = linhaMs;
+                    colunaUmaThread = colunaMs;
+                }
+
+                // Eficiência = aceleração em relação a 1 thread, dividida pelo número de threads
+                System.out.printf("%7d | %8.2f %6.2f %5.0f%% | %9.2f %6.2f %5.0f%%\n", threads,
+                        linhaMs, bytes / (linhaMs * 1_000_000.0), 100 * linhaUmaThread / linhaMs / threads,
+                        colunaMs, bytes / (colunaMs * 1_000_000.0), 100 * colunaUmaThread / colunaMs / threads);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        System.out.println("\nQuando a eficiência cai enquanto a vazão (GB/s) estabiliza, o limite passou a ser a memória.\n");
+    }
+}
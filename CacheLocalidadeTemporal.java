@@ -21,29 +21,47 @@ Comparações neste experimento:
 
 public class CacheLocalidadeTemporal {
     
-    private static final int TAMANHO_ARRAY = 10_000; // Um array grande
+    // Um array grande (pode ser trocado com -Dtemporal.tamanho=N ou pelo Main)
+    private static final int TAMANHO_ARRAY = Integer.getInteger("temporal.tamanho", 10_000);
     private static final int NUM_OPERACOES = 50_000_000; // Muitas operações
-    private static final int[] dados = new int[TAMANHO_ARRAY];
+    // Salto usado pela soma espalhada (ver VarreduraTamanho para outros valores)
+    private static final int SALTO_PADRAO = 4096;
 
-    static {
-        for (int i = 0; i < TAMANHO_ARRAY; i++) {
-            dados[i] = (int) (Math.random() * 10);
+    // O array só é criado no primeiro uso (quando a classe Dados é carregada)
+    private static class Dados {
+        static final int[] valores = criarDados(TAMANHO_ARRAY);
+    }
+
+    private static void validarTamanho() {
+        if (TAMANHO_ARRAY < 1) {
+            throw new IllegalArgumentException("temporal.tamanho deve ser maior que zero: " + TAMANHO_ARRAY);
         }
     }
 
+    public static int[] criarDados(int tamanho) {
+        return DadosAleatorios.inteiros(tamanho, 10, DadosAleatorios.SEMENTE_PADRAO);
+    }
+
     /**
      * Acessa elementos muito distantes no array.
      * A cada iteração, é provável que ocorra um "cache miss".
      */
     public static long somaEspalhada() {
-        long soma = 0;
-        int indice = 0; 
+        return somaEspalhada(Dados.valores, NUM_OPERACOES);
+    }
+
+    public static long somaEspalhada(int[] dados, int numOperacoes) {
         // O salto garante que cada acesso esteja em uma página de memória diferente,
         // maximizando os cache misses.
-        int salto = 4096; 
-        for (int i = 0; i < NUM_OPERACOES; i++) {
+        return somaEspalhada(dados, numOperacoes, SALTO_PADRAO);
+    }
+
+    public static long somaEspalhada(int[] dados, int numOperacoes, int salto) {
+        long soma = 0;
+        int indice = 0; 
+        for (int i = 0; i < numOperacoes; i++) {
             soma += dados[indice];       
-            indice = (indice + salto) % TAMANHO_ARRAY; 
+            indice = (indice + salto) % dados.length; 
         }
         return soma;
     }
@@ -54,34 +72,50 @@ public class CacheLocalidadeTemporal {
      * serão "cache hits" extremamente rápidos no cache L1.
      */
     public static long somaRepetida() {
+        return somaRepetida(Dados.valores, NUM_OPERACOES);
+    }
+
+    public static long somaRepetida(int[] dados, int numOperacoes) {
         long soma = 0;
-        for (int i = 0; i < NUM_OPERACOES; i++) {
-            soma += dados[42];
+        // O elemento 42, ou o último, em arrays menores
+        int indice = Math.min(42, dados.length - 1);
+        for (int i = 0; i < numOperacoes; i++) {
+            soma += dados[indice];
         }
         return soma;
     }
 
     public static void main(String[] args) {
+        validarTamanho();
         System.out.println("Iniciando análise de localidade temporal...");
 
         System.out.println("Aquecendo a JVM...");      
         somaEspalhada();
         somaRepetida();        
+        System.out.println(ContadoresHardware.situacao());
         System.out.println("----------------------------------------------------------");
        
         // --- Teste 1: Péssima Localidade Temporal e Espacial ---
+        MetricasGC.Instantaneo gcAntes = MetricasGC.agora();
         long inicioEspalhada = System.nanoTime();
         long resEspalhada = somaEspalhada();
         long fimEspalhada = System.nanoTime();
+        MetricasGC.Trecho gcEspalhada = gcAntes.ate(MetricasGC.agora());
         double duracaoEspalhada = (fimEspalhada - inicioEspalhada) / 1_000_000.0;
         System.out.printf("Tempo com acesso ESPALHADO: %.2f ms\n", duracaoEspalhada);
+        System.out.println("    " + gcEspalhada.resumo());
+        ContadoresHardware.imprimir(() -> somaEspalhada(), NUM_OPERACOES);
 
         // --- Teste 2: Excelente Localidade Temporal ---
+        gcAntes = MetricasGC.agora();
         long inicioRepetida = System.nanoTime();
         long resRepetida = somaRepetida();
         long fimRepetida = System.nanoTime();
+        MetricasGC.Trecho gcRepetida = gcAntes.ate(MetricasGC.agora());
         double duracaoRepetida = (fimRepetida - inicioRepetida) / 1_000_000.0;
         System.out.printf("Tempo com acesso REPETIDO:  %.2f ms\n", duracaoRepetida);
+        System.out.println("    " + gcRepetida.resumo());
+        ContadoresHardware.imprimir(() -> somaRepetida(), NUM_OPERACOES);
 
         // Usamos as somas para garantir que o compilador não otimize os loops
         // removendo-os completamente.
@@ -17,8 +17,29 @@ A teoria é (o que esperamos...):
 
 public class CacheTamanhoLinha {
 
-    private static final int TAMANHO_ARRAY = 128 * 1024 * 1024; // Array grande (512MB)
-    private static final int[] dados = new int[TAMANHO_ARRAY];
+    // Array grande (512MB; pode ser trocado com -Dlinha.tamanhoMB=N ou pelo Main)
+    private static final long TAMANHO_MB = Long.getLong("linha.tamanhoMB", 512);
+    // Maior array que a JVM costuma aceitar
+    private static final long MAXIMO_ELEMENTOS = Integer.MAX_VALUE - 8;
+
+    // O array só é criado no primeiro uso (quando a classe Dados é carregada), para que
+    // quem só usa os métodos com parâmetros (ex: VarreduraTamanho) não pague os 512 MB.
+    private static class Dados {
+        static final int[] valores = criarDados(tamanhoArray());
+    }
+
+    /**
+     * Número de ints do array padrão, a partir de linha.tamanhoMB (calculado em long: com
+     * 8192 MB ou mais a conta em int estouraria).
+     */
+    static int tamanhoArray() {
+        long elementos = TAMANHO_MB * (1024 * 1024 / Integer.BYTES);
+        if (TAMANHO_MB < 1 || elementos > MAXIMO_ELEMENTOS) {
+            throw new IllegalArgumentException("linha.tamanhoMB deve ficar entre 1 e "
+                    + MAXIMO_ELEMENTOS * Integer.BYTES / (1024 * 1024) + ": " + TAMANHO_MB);
+        }
+        return (int) elementos;
+    }
 
     // Número de execuções para medir e tirar a média
     private static final int ITERACOES_MEDICAO = 20;
@@ -26,15 +47,17 @@ public class CacheTamanhoLinha {
     // Variável somente para consumir o resultado e evitar que o compilador otimize o código
     public static volatile long buracoNegro;
 
-    // Bloco estático para inicializar o vetor com dado
-    static {
-        for (int i = 0; i < dados.length; i++) {
-            // Usamos o módulo para evitar que a soma estoure facilmente
-            dados[i] = (int) (Math.random() * 256);
-        }
+    // Inicializa o vetor com dados aleatórios
+    public static int[] criarDados(int tamanho) {
+        // Valores pequenos (0 a 255) para evitar que a soma estoure facilmente
+        return DadosAleatorios.inteiros(tamanho, 256, DadosAleatorios.SEMENTE_PADRAO);
     }
 
     public static long acessarComSalto(int salto) {
+        return acessarComSalto(Dados.valores, salto);
+    }
+
+    public static long acessarComSalto(int[] dados, int salto) {
         long soma = 0;
         for (int i = 0; i < dados.length; i += salto) {
             soma += dados[i];
@@ -51,6 +74,7 @@ public class CacheTamanhoLinha {
 
         // Medição 
         long nanosTotais = 0;
+        MetricasGC.Instantaneo gcAntes = MetricasGC.agora();
         // Executa o teste várias vezes e acumula o tempo
         for (int i = 0; i < ITERACOES_MEDICAO; i++) {
             long inicio = System.nanoTime();
@@ -58,25 +82,47 @@ public class CacheTamanhoLinha {
             long fim = System.nanoTime();
             nanosTotais += (fim - inicio);
         }
+        MetricasGC.Trecho gc = gcAntes.ate(MetricasGC.agora());
 
         // Apresentação dos Resultados
         long nanosMedios = nanosTotais / ITERACOES_MEDICAO;
         
-        long bytesAcessados = (long) (TAMANHO_ARRAY / salto) * Integer.BYTES;
+        long bytesAcessados = (long) (tamanhoArray() / salto) * Integer.BYTES;
         
         // A conversão de (bytes / nanossegundos) para (GB / segundos) é direta,
         // pois ambos os prefixos (giga e nano) representam 10^9.
         double gbs = (double) bytesAcessados / nanosMedios;
 
-        System.out.printf("Salto: %2d ints | Tempo médio: %6.2f ms | Largura de Banda: %.2f GB/s (Soma: %d)\n",
+        System.out.printf("Salto: %2d ints | Tempo médio: %6.2f ms | Largura de Banda: %.2f GB/s (Soma: %d)",
                 salto, nanosMedios / 1_000_000.0, gbs, buracoNegro);
+
+        // Mesma varredura com o kernel vetorial (SIMD), quando disponível
+        if (KernelsSoma.VETORIAL_DISPONIVEL) {
+            for (int i = 0; i < 10; i++) {
+                buracoNegro = KernelsSoma.somarComSalto(Dados.valores, salto);
+            }
+            long nanosVetorial = 0;
+            for (int i = 0; i < ITERACOES_MEDICAO; i++) {
+                long inicio = System.nanoTime();
+                buracoNegro = KernelsSoma.somarComSalto(Dados.valores, salto);
+                nanosVetorial += System.nanoTime() - inicio;
+            }
+            nanosVetorial /= ITERACOES_MEDICAO;
+            System.out.printf(" | Vetorial: %.2f GB/s (%.2fx)",
+                    (double) bytesAcessados / nanosVetorial, (double) nanosMedios / nanosVetorial);
+        }
+        System.out.println();
+        System.out.println("    " + gc.resumo());
+        ContadoresHardware.imprimir(() -> acessarComSalto(salto), tamanhoArray() / salto);
     }
    
     public static void main(String[] args) {
+        tamanhoArray(); // Valida linha.tamanhoMB antes de começar
       
 
         System.out.println("Analisando o impacto do salto (stride) no acesso à memória.");
         System.out.println("O desempenho deve cair quando o salto cruzar a fronteira da linha de cache (geralmente 16 ints = 64 bytes).");
+        System.out.println(ContadoresHardware.situacao());
         System.out.println("-------------------------------------------------------------------------");
 
         // Testa diferentes tamanhos de salto
@@ -0,0 +1,287 @@
+/*
+
+Contadores de hardware da CPU (perf_event do Linux) em volta de um trecho medido.
+
+Os experimentos de cache deduzem as faltas de cache (cache misses) a partir do tempo: se a
+varredura por coluna é mais lenta, "deve ser" porque cada acesso cai em uma linha de cache
+diferente. A CPU, porém, conta esses eventos diretamente, e o Linux os expõe pela interface
+perf_event. Com eles podemos PROVAR a causa, mostrando por acesso:
+- faltas no cache de dados L1 (L1-dcache-load-misses);
+- faltas no último nível de cache, o L3 (LLC-load-misses);
+- faltas na TLB de dados (dTLB-load-misses), a tabela que traduz endereços virtuais;
+- instruções por ciclo (IPC = instructions / cycles): abaixo de 1, a CPU passa a maior
+  parte do tempo esperando a memória.
+
+O Java não acessa perf_event diretamente (seria preciso JNI, e a API de funções externas
+ainda não é estável no Java 17), então usamos o comando "perf stat" em um subprocesso,
+ligado somente à thread que executa o trecho (-t), para não contar o JIT e o coletor de
+lixo. O perf começa com os contadores desligados (-D -1) e é controlado por dois FIFOs
+(--control fifo:controle,confirmacao): só iniciamos o trecho depois que o perf confirma
+("ack") o comando "enable", e o desligamos ("disable") assim que o trecho termina. Se a
+confirmação não chegar (perf antigo sem --control, evento recusado, máquina sobrecarregada),
+a medição é descartada em vez de mostrar contagens parciais. No fim o perf recebe um
+SIGINT, como se fosse um Ctrl+C, e grava as contagens em um arquivo CSV.
+
+Se o perf não estiver instalado, se o kernel não permitir (perf_event_paranoid) ou em uma
+máquina virtual sem contadores, disponivel() retorna false e os experimentos mostram só
+os tempos. Para desligar mesmo com o perf disponível: -Dcontadores=false.
+
+*/
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ContadoresHardware {
+
+    public static final String CICLOS = "cycles";
+    public static final String INSTRUCOES = "instructions";
+    public static final String FALTAS_L1 = "L1-dcache-load-misses";
+    public static final String FALTAS_LLC = "LLC-load-misses";
+    public static final String FALTAS_TLB = "dTLB-load-misses";
+    private static final List<String> EVENTOS = Arrays.asList(CICLOS, INSTRUCOES, FALTAS_L1, FALTAS_LLC, FALTAS_TLB);
+
+    // Tempo máximo para o perf confirmar um comando de controle
+    private static final long LIMITE_CONFIRMACAO_MS = 5000;
+
+    // Lê as confirmações do perf, para podermos desistir de esperar depois do limite
+    private static final ExecutorService LEITOR_CONFIRMACAO = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "contadores-confirmacao");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static String motivoIndisponivel;
+    private static boolean verificado;
+
+    /**
+     * Contagens de um trecho. Eventos que a CPU não suporta ficam de fora do mapa.
+     */
+    public static class Contagens {
+        private final Map<String, Long> valores;
+        public final long nanos;
+
+        Contagens(Map<String, Long> valores, long nanos) {
+            this.valores = valores;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Valor do evento, ou -1 se ele não foi contado.
+         */
+        public long valor(String evento) {
+            return valores.getOrDefault(evento, -1L);
+        }
+
+        public double ipc() {
+            long ciclos = valor(CICLOS);
+            long instrucoes = valor(INSTRUCOES);
+            return ciclos > 0 && instrucoes >= 0 ? (double) instrucoes / ciclos : Double.NaN;
+        }
+
+        private String porAcesso(String evento, long acessos) {
+            long v = valor(evento);
+            return v < 0 ? "     n/d" : String.format(Locale.ROOT, "%8.4f", (double) v / acessos);
+        }
+
+        /**
+         * Uma linha com IPC e faltas por acesso, para imprimir ao lado do tempo.
+         */
+        public String resumo(long acessos) {
+            double ipc = ipc();
+            return String.format("IPC %s | faltas/acesso: L1 %s | LLC %s | dTLB %s",
+                                 Double.isNaN(ipc) ? " n/d" : String.format(Locale.ROOT, "%4.2f", ipc),
+                                 porAcesso(FALTAS_L1, acessos), porAcesso(FALTAS_LLC, acessos),
+                                 porAcesso(FALTAS_TLB, acessos));
+        }
+    }
+
+    /**
+     * Diz se o perf pode ser usado nesta máquina. A verificação é feita uma única vez.
+     */
+    public static synchronized boolean disponivel() {
+        if (!verificado) {
+            verificado = true;
+            if (!"false".equals(System.getProperty("contadores"))) {
+                try {
+                    Contagens teste = medir(() -> System.nanoTime());
+                    if (teste == null || teste.valor(INSTRUCOES) < 0) {
+                        motivoIndisponivel = "o perf não confirmou a contagem ou não contou instruções"
+                                             + " (perf sem --control? perf_event_paranoid? máquina virtual?)";
+                    }
+                } catch (Exception e) {
+                    motivoIndisponivel = "perf não encontrado ou sem permissão (" + e.getMessage() + ")";
+                }
+            } else {
+                motivoIndisponivel = "desligados com -Dcontadores=false";
+            }
+        }
+        return motivoIndisponivel == null;
+    }
+
+    /**
+     * Frase para o cabeçalho dos experimentos.
+     */
+    public static String situacao() {
+        return disponivel() ? "Contadores de hardware: perf stat (" + String.join(", ", EVENTOS) + ")"
+                            : "Contadores de hardware: indisponíveis, " + motivoIndisponivel;
+    }
+
+    /**
+     * Identificador da thread atual no S.O. (/proc/thread-self aponta para "pid/task/tid").
+     * Retorna null se não for possível descobri-lo.
+     */
+    static String threadAtual() {
+        try {
+            return Paths.get("/proc/thread-self").toRealPath().getFileName().toString();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Executa a tarefa uma vez, na thread atual, com o perf contando os eventos.
+     * Retorna null se o perf não confirmou que ligou ou desligou os contadores (terminou
+     * antes da hora, não conhece --control, demorou mais que o limite...).
+     */
+    public static Contagens medir(Medicao.Tarefa tarefa) throws Exception {
+        Path diretorio = Files.createTempDirectory("contadores");
+        Path arquivo = diretorio.resolve("saida.csv");
+        Path controle = diretorio.resolve("controle");
+        Path confirmacao = diretorio.resolve("confirmacao");
+        try {
+            Medicao.executarComando(Arrays.asList("mkfifo", controle.toString(), confirmacao.toString()));
+            if (!Files.exists(controle) || !Files.exists(confirmacao)) {
+                throw new IOException("mkfifo falhou");
+            }
+            String tid = threadAtual();
+            List<String> comando = new ArrayList<>(Arrays.asList(
+                    "perf", "stat", "-x", ",", "-o", arquivo.toString(), "-e", String.join(",", EVENTOS),
+                    "-D", "-1", "--control", "fifo:" + controle + "," + confirmacao));
+            if (tid != null) {
+                comando.addAll(Arrays.asList("-t", tid));
+            } else {
+                // Sem o tid contamos o processo inteiro, incluindo JIT e coletor de lixo
+                comando.addAll(Arrays.asList("-p", String.valueOf(ProcessHandle.current().pid())));
+            }
+
+            // Abertos para leitura e escrita, a abertura de um FIFO não espera pelo outro lado
+            try (FileChannel canalControle = FileChannel.open(controle, StandardOpenOption.READ,
+                                                              StandardOpenOption.WRITE);
+                 FileChannel canalConfirmacao = FileChannel.open(confirmacao, StandardOpenOption.READ,
+                                                                 StandardOpenOption.WRITE)) {
+                Process perf = new ProcessBuilder(comando)
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .start();
+                if (!enviarComando(perf, canalControle, canalConfirmacao, "enable")) {
+                    perf.destroyForcibly();
+                    return null;
+                }
+
+                long inicio = System.nanoTime();
+                Medicao.buracoNegro = tarefa.executar();
+                long nanos = System.nanoTime() - inicio;
+
+                boolean desligado = enviarComando(perf, canalControle, canalConfirmacao, "disable");
+                Medicao.executarComando(Arrays.asList("kill", "-INT", String.valueOf(perf.pid())));
+                if (!perf.waitFor(LIMITE_CONFIRMACAO_MS, TimeUnit.MILLISECONDS)) {
+                    perf.destroyForcibly();
+                    return null;
+                }
+                return desligado ? new Contagens(lerSaida(Files.readAllLines(arquivo)), nanos) : null;
+            }
+        } finally {
+            Files.deleteIfExists(arquivo);
+            Files.deleteIfExists(controle);
+            Files.deleteIfExists(confirmacao);
+            Files.deleteIfExists(diretorio);
+        }
+    }
+
+    /**
+     * Escreve um comando no FIFO de controle do perf e espera o "ack" no FIFO de
+     * confirmação. Retorna false se o perf terminou ou não respondeu dentro do limite.
+     */
+    static boolean enviarComando(Process perf, FileChannel controle, FileChannel confirmacao, String comando)
+            throws Exception {
+        controle.write(ByteBuffer.wrap((comando + "\n").getBytes(StandardCharsets.US_ASCII)));
+        Future<Boolean> resposta = LEITOR_CONFIRMACAO.submit(() -> {
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            StringBuilder recebido = new StringBuilder();
+            while (!recebido.toString().contains("ack")) {
+                buffer.clear();
+                if (confirmacao.read(buffer) < 0) {
+                    return false;
+                }
+                recebido.append(new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII));
+            }
+            return true;
+        });
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LIMITE_CONFIRMACAO_MS);
+        while (!resposta.isDone() && perf.isAlive() && System.nanoTime() < limite) {
+            Thread.sleep(1);
+        }
+        if (!resposta.isDone()) {
+            // Interrompe a leitura (o canal é fechado) para liberar a thread leitora
+            resposta.cancel(true);
+            return false;
+        }
+        return resposta.get();
+    }
+
+    /**
+     * Lê a saída do "perf stat -x ,": valor,unidade,evento,... por linha. Eventos não
+     * suportados aparecem como "<not supported>" ou "<not counted>" e são ignorados.
+     */
+    static Map<String, Long> lerSaida(List<String> linhas) {
+        Map<String, Long> valores = new HashMap<>();
+        for (String linha : linhas) {
+            String[] campos = linha.split(",");
+            if (linha.startsWith("#") || campos.length < 3 || campos[0].startsWith("<")) {
+                continue;
+            }
+            // Com perf_event_paranoid >= 2 os eventos vêm com o sufixo ":u" (só modo usuário)
+            String evento = campos[2].split(":")[0];
+            try {
+                valores.put(evento, (long) Double.parseDouble(campos[0]));
+            } catch (NumberFormatException e) {
+                // linha que não é de contagem
+            }
+        }
+        return valores;
+    }
+
+    /**
+     * Executa a tarefa sob os contadores e imprime o resumo por acesso. Não imprime nada
+     * se os contadores não estão disponíveis. Pensado para os métodos main dos
+     * experimentos, que não propagam exceções.
+     */
+    public static void imprimir(Medicao.Tarefa tarefa, long acessos) {
+        if (!disponivel()) {
+            return;
+        }
+        try {
+            Contagens contagens = medir(tarefa);
+            System.out.println(contagens == null ? "    contadores: o perf não confirmou a contagem; medição descartada"
+                                                 : "    " + contagens.resumo(acessos));
+        } catch (Exception e) {
+            System.out.println("    contadores: erro (" + e.getMessage() + ")");
+        }
+    }
+}
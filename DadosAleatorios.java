@@ -0,0 +1,72 @@
+/*
+
+Geração rápida dos dados aleatórios dos experimentos.
+
+Os experimentos preenchiam seus arrays com Math.random(), um elemento por vez e em uma
+única thread. Math.random() usa um único java.util.Random compartilhado, cuja semente é
+atualizada com compareAndSet a cada número: para os 128M ints do CacheTamanhoLinha isso
+levava dezenas de segundos, antes mesmo da primeira medição.
+
+Aqui o array é dividido em blocos de 64K elementos, preenchidos em paralelo (parallel
+stream, no ForkJoinPool comum). Cada bloco tem o seu próprio SplittableRandom, criado a
+partir da semente e do número do bloco, então:
+- não há estado compartilhado entre as threads;
+- o resultado é o mesmo para a mesma semente, qualquer que seja o número de threads.
+
+*/
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+public class DadosAleatorios {
+
+    // Elementos por bloco: grande o bastante para amortizar a criação do gerador e a
+    // divisão do trabalho, pequeno o bastante para equilibrar as threads
+    private static final int BLOCO = 1 << 16;
+
+    public static final long SEMENTE_PADRAO = 42;
+
+    /**
+     * Array de 'tamanho' ints uniformes em [0, limite).
+     */
+    public static int[] inteiros(int tamanho, int limite, long semente) {
+        int[] dados = new int[tamanho];
+        int blocos = (tamanho + BLOCO - 1) / BLOCO;
+        IntStream.range(0, blocos).parallel().forEach(b -> {
+            int de = b * BLOCO;
+            preencher(dados, de, Math.min(tamanho, de + BLOCO), limite, gerador(semente, b));
+        });
+        return dados;
+    }
+
+    /**
+     * Matriz 'linhas' x 'colunas' de ints uniformes em [0, limite), uma linha por tarefa.
+     */
+    public static int[][] matriz(int linhas, int colunas, int limite, long semente) {
+        int[][] m = new int[linhas][];
+        IntStream.range(0, linhas).parallel().forEach(i -> {
+            m[i] = new int[colunas];
+            preencher(m[i], 0, colunas, limite, gerador(semente, i));
+        });
+        return m;
+    }
+
+    /**
+     * Gerador do bloco 'bloco' para a semente dada (também usado pelo RAMvsDisco).
+     */
+    static SplittableRandom gerador(long semente, long bloco) {
+        // O SplittableRandom usa a semente como estado inicial, sem embaralhar; sementes
+        // vizinhas dariam sequências parecidas. Por isso embaralhamos a semente de cada
+        // bloco com a mesma função de mistura (mix64) que o SplittableRandom usa nas saídas.
+        long z = semente * 0x9E3779B97F4A7C15L + bloco;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return new SplittableRandom(z ^ (z >>> 31));
+    }
+
+    private static void preencher(int[] dados, int de, int ate, int limite, SplittableRandom random) {
+        for (int i = de; i < ate; i++) {
+            dados[i] = random.nextInt(limite);
+        }
+    }
+}
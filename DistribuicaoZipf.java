@@ -0,0 +1,84 @@
+/*
+
+Gerador de números com distribuição de Zipf: o item de posição k (k = 0, 1, 2...) é
+sorteado com probabilidade proporcional a 1 / (k + 1)^theta. Com theta perto de 1, poucos
+itens "quentes" recebem a maior parte dos acessos, como as chaves mais populares de um
+cache ou as páginas mais visitadas de um site.
+
+Usa o algoritmo de Gray et al. ("Quickly Generating Billion-Record Synthetic Databases",
+SIGMOD 1994), o mesmo do YCSB: cada sorteio custa só um nextDouble e uma potência. A
+constante zeta(n) é somada termo a termo até 10 milhões de itens e, acima disso,
+aproximada pela integral (fórmula de Euler-Maclaurin), com erro desprezível.
+
+*/
+
+import java.util.SplittableRandom;
+
+public class DistribuicaoZipf {
+
+    // 0,99 é o valor usado pelo YCSB
+    public static final double THETA_PADRAO = 0.99;
+    private static final long LIMITE_SOMA_EXATA = 10_000_000;
+
+    private final long itens;
+    private final double theta;
+    private final double alfa;
+    private final double zetaN;
+    private final double eta;
+    private final double metadePotTheta;
+    private final SplittableRandom random;
+
+    public DistribuicaoZipf(long itens, double theta, long semente) {
+        if (itens < 2 || theta <= 0 || theta >= 1) {
+            throw new IllegalArgumentException("São necessários itens >= 2 e 0 < theta < 1");
+        }
+        this.itens = itens;
+        this.theta = theta;
+        this.alfa = 1.0 / (1.0 - theta);
+        this.zetaN = zeta(itens, theta);
+        this.eta = (1 - Math.pow(2.0 / itens, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+        this.metadePotTheta = 1 + Math.pow(0.5, theta);
+        this.random = new SplittableRandom(semente);
+    }
+
+    public DistribuicaoZipf(long itens, long semente) {
+        this(itens, THETA_PADRAO, semente);
+    }
+
+    static double zeta(long n, double theta) {
+        long exatos = Math.min(n, LIMITE_SOMA_EXATA);
+        double soma = 0;
+        for (long i = 1; i <= exatos; i++) {
+            soma += 1.0 / Math.pow(i, theta);
+        }
+        if (n > exatos) {
+            // Integral de x^-theta entre 'exatos' e n, mais a correção dos extremos
+            soma += (Math.pow(n, 1 - theta) - Math.pow(exatos, 1 - theta)) / (1 - theta)
+                    + 0.5 * (Math.pow(n, -theta) - Math.pow(exatos, -theta));
+        }
+        return soma;
+    }
+
+    /**
+     * Posição sorteada, entre 0 (a mais popular) e itens - 1.
+     */
+    public long proximo() {
+        double u = random.nextDouble();
+        double uz = u * zetaN;
+        if (uz < 1) {
+            return 0;
+        }
+        if (uz < metadePotTheta) {
+            return 1;
+        }
+        return Math.min(itens - 1, (long) (itens * Math.pow(eta * u - eta + 1, alfa)));
+    }
+
+    public long itens() {
+        return itens;
+    }
+
+    public double theta() {
+        return theta;
+    }
+}
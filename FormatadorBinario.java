@@ -0,0 +1,302 @@
+/*
+
+Formatação binária ("0000 0101") de buffers inteiros, sem alocação e guiada por tabela.
+
+O BitwiseOperatorsExample_L6.byteToBinaryString é ótimo para entender os bits, mas caro
+para despejar um buffer grande: para CADA byte ele cria um StringBuilder, chama getBit oito
+vezes e ainda cria a String do resultado, que depois é concatenada com outras Strings.
+
+Aqui o texto de cada um dos 256 valores possíveis de um byte é calculado uma única vez,
+quando a classe é carregada, e guardado em uma tabela:
+- para destinos byte[] e ByteBuffer, os 8 dígitos ASCII de um byte cabem exatamente em um
+  long, então cada byte formatado é UMA escrita de 8 bytes (VarHandle sobre o byte[]);
+- para destinos char[], os 8 chars são copiados da tabela de chars;
+- para um OutputStream, os bytes passam por um buffer interno reaproveitado.
+Nenhum método aloca memória depois da criação do formatador (por isso uma instância não
+deve ser usada por duas threads ao mesmo tempo).
+
+O agrupamento é configurável: espaço entre os nibbles ("0000 0101"), separador entre os
+bytes e quebra de linha a cada N bytes.
+
+O main compara o byteToBinaryString com o formatador em bytes por segundo e em bytes
+alocados por byte formatado (ver MetricasGC).
+
+Uso: java -cp bin FormatadorBinario [tamanhoMB]
+
+*/
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+public class FormatadorBinario {
+
+    // Visões de um byte[] como long e int big-endian: o primeiro dígito fica no primeiro byte
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    // Os 8 dígitos ASCII de cada valor de byte, o mais significativo primeiro
+    private static final long[] DIGITOS = new long[256];
+    private static final char[] DIGITOS_CHAR = new char[256 * 8];
+
+    static {
+        for (int v = 0; v < 256; v++) {
+            long digitos = 0;
+            for (int bit = 7; bit >= 0; bit--) {
+                char c = BitwiseOperatorsExample_L6.getBit((byte) v, bit) == 1 ? '1' : '0';
+                digitos = (digitos << 8) | c;
+                DIGITOS_CHAR[v * 8 + (7 - bit)] = c;
+            }
+            DIGITOS[v] = digitos;
+        }
+    }
+
+    private static final int TAMANHO_BUFFER_SAIDA = 8192;
+
+    private final char separadorNibble;
+    private final char separadorByte;
+    private final int bytesPorLinha;
+    private final int largura;
+    private final byte[] bufferSaida;
+
+    /**
+     * @param separadorNibble caractere entre os dois nibbles de cada byte, ou 0 para nenhum
+     * @param separadorByte   caractere entre bytes da mesma linha, ou 0 para nenhum
+     * @param bytesPorLinha   bytes por linha (separadas por '\n'), ou 0 para uma linha só
+     */
+    public FormatadorBinario(char separadorNibble, char separadorByte, int bytesPorLinha) {
+        if (separadorNibble > 127 || separadorByte > 127 || bytesPorLinha < 0) {
+            throw new IllegalArgumentException("Os separadores devem ser ASCII e bytesPorLinha >= 0");
+        }
+        this.separadorNibble = separadorNibble;
+        this.separadorByte = separadorByte;
+        this.bytesPorLinha = bytesPorLinha;
+        this.largura = separadorNibble != 0 ? 9 : 8;
+        this.bufferSaida = new byte[TAMANHO_BUFFER_SAIDA];
+    }
+
+    /**
+     * "00000101", sem separadores, como o byteToBinaryString.
+     */
+    public FormatadorBinario() {
+        this((char) 0, (char) 0, 0);
+    }
+
+    /**
+     * Quantos caracteres a formatação de 'quantidade' bytes produz.
+     */
+    public int tamanhoSaida(int quantidade) {
+        if (quantidade == 0) {
+            return 0;
+        }
+        long intervalos = quantidade - 1;
+        long quebras = bytesPorLinha > 0 ? intervalos / bytesPorLinha : 0;
+        long separadores = separadorByte != 0 ? intervalos - quebras : 0;
+        return Math.toIntExact((long) quantidade * largura + quebras + separadores);
+    }
+
+    /**
+     * Separador que vem antes do byte de posição k (k > 0) dentro do trecho, ou 0.
+     */
+    private char separadorAntes(int k) {
+        if (bytesPorLinha > 0 && k % bytesPorLinha == 0) {
+            return '\n';
+        }
+        return separadorByte;
+    }
+
+    /**
+     * Formata origem[de, ate) em destino a partir de 'posicao', em ASCII.
+     * Retorna a posição seguinte ao último caractere escrito.
+     */
+    public int formatar(byte[] origem, int de, int ate, byte[] destino, int posicao) {
+        Objects.checkFromToIndex(de, ate, origem.length);
+        Objects.checkFromIndexSize(posicao, tamanhoSaida(ate - de), destino.length);
+        return formatar(origem, de, ate, destino, posicao, de);
+    }
+
+    /**
+     * Como o anterior, mas os separadores são contados a partir de origem[inicioTrecho],
+     * para que um trecho longo possa ser formatado em vários blocos.
+     */
+    private int formatar(byte[] origem, int de, int ate, byte[] destino, int posicao, int inicioTrecho) {
+        for (int i = de; i < ate; i++) {
+            if (i > inicioTrecho) {
+                char separador = separadorAntes(i - inicioTrecho);
+                if (separador != 0) {
+                    destino[posicao++] = (byte) separador;
+                }
+            }
+            long digitos = DIGITOS[origem[i] & 0xFF];
+            if (separadorNibble == 0) {
+                LONG.set(destino, posicao, digitos);
+            } else {
+                INT.set(destino, posicao, (int) (digitos >>> 32));
+                destino[posicao + 4] = (byte) separadorNibble;
+                INT.set(destino, posicao + 5, (int) digitos);
+            }
+            posicao += largura;
+        }
+        return posicao;
+    }
+
+    /**
+     * Formata origem[de, ate) em destino a partir de 'posicao'.
+     * Retorna a posição seguinte ao último caractere escrito.
+     */
+    public int formatar(byte[] origem, int de, int ate, char[] destino, int posicao) {
+        Objects.checkFromToIndex(de, ate, origem.length);
+        Objects.checkFromIndexSize(posicao, tamanhoSaida(ate - de), destino.length);
+        for (int i = de; i < ate; i++) {
+            if (i > de) {
+                char separador = separadorAntes(i - de);
+                if (separador != 0) {
+                    destino[posicao++] = separador;
+                }
+            }
+            int inicio = (origem[i] & 0xFF) * 8;
+            if (separadorNibble == 0) {
+                System.arraycopy(DIGITOS_CHAR, inicio, destino, posicao, 8);
+            } else {
+                System.arraycopy(DIGITOS_CHAR, inicio, destino, posicao, 4);
+                destino[posicao + 4] = separadorNibble;
+                System.arraycopy(DIGITOS_CHAR, inicio + 4, destino, posicao + 5, 4);
+            }
+            posicao += largura;
+        }
+        return posicao;
+    }
+
+    /**
+     * Formata origem[de, ate) no ByteBuffer, a partir da posição atual, que avança.
+     * Lança BufferOverflowException (sem escrever nada) se não houver espaço.
+     */
+    public void formatar(byte[] origem, int de, int ate, ByteBuffer destino) {
+        Objects.checkFromToIndex(de, ate, origem.length);
+        if (destino.remaining() < tamanhoSaida(ate - de)) {
+            throw new BufferOverflowException();
+        }
+        boolean inverter = destino.order() != ByteOrder.BIG_ENDIAN;
+        int posicao = destino.position();
+        for (int i = de; i < ate; i++) {
+            if (i > de) {
+                char separador = separadorAntes(i - de);
+                if (separador != 0) {
+                    destino.put(posicao++, (byte) separador);
+                }
+            }
+            long digitos = DIGITOS[origem[i] & 0xFF];
+            if (separadorNibble == 0) {
+                destino.putLong(posicao, inverter ? Long.reverseBytes(digitos) : digitos);
+            } else {
+                int alto = (int) (digitos >>> 32);
+                int baixo = (int) digitos;
+                destino.putInt(posicao, inverter ? Integer.reverseBytes(alto) : alto);
+                destino.put(posicao + 4, (byte) separadorNibble);
+                destino.putInt(posicao + 5, inverter ? Integer.reverseBytes(baixo) : baixo);
+            }
+            posicao += largura;
+        }
+        destino.position(posicao);
+    }
+
+    /**
+     * Formata origem[de, ate) direto no OutputStream, em blocos pelo buffer interno.
+     */
+    public void formatar(byte[] origem, int de, int ate, OutputStream saida) throws IOException {
+        Objects.checkFromToIndex(de, ate, origem.length);
+        // Cada byte ocupa no máximo largura + 1 (o separador antes dele)
+        int bytesPorBloco = bufferSaida.length / (largura + 1);
+        for (int bloco = de; bloco < ate; bloco += bytesPorBloco) {
+            int fimBloco = Math.min(ate, bloco + bytesPorBloco);
+            int posicao = formatar(origem, bloco, fimBloco, bufferSaida, 0, de);
+            saida.write(bufferSaida, 0, posicao);
+        }
+    }
+
+    /**
+     * Texto de um único byte (aloca a String, como o byteToBinaryString).
+     */
+    public String paraString(byte valor) {
+        byte[] texto = new byte[largura];
+        formatar(new byte[] {valor}, 0, 1, texto, 0);
+        return new String(texto, StandardCharsets.US_ASCII);
+    }
+
+    interface Formatacao {
+        long executar(byte[] dados) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int tamanhoMB = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        byte[] dados = new byte[tamanhoMB * 1024 * 1024];
+        new SplittableRandom(42).nextBytes(dados);
+
+        FormatadorBinario formatador = new FormatadorBinario(' ', ' ', 16);
+        byte[] destinoBytes = new byte[formatador.tamanhoSaida(dados.length)];
+        char[] destinoChars = new char[formatador.tamanhoSaida(dados.length)];
+        ByteBuffer destinoDireto = ByteBuffer.allocateDirect(formatador.tamanhoSaida(dados.length));
+        OutputStream nulo = OutputStream.nullOutputStream();
+
+        String[] nomes = {"byteToBinaryString", "tabela -> byte[]", "tabela -> char[]", "tabela -> ByteBuffer",
+                          "tabela -> OutputStream"};
+        Formatacao[] formatacoes = {
+            d -> {
+                // Como o main do BitwiseOperatorsExample_L6: uma String por byte, concatenadas
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < d.length; i++) {
+                    String b = BitwiseOperatorsExample_L6.byteToBinaryString(d[i]);
+                    sb.append(b, 0, 4).append(' ').append(b, 4, 8).append((i + 1) % 16 == 0 ? '\n' : ' ');
+                }
+                return sb.length();
+            },
+            d -> formatador.formatar(d, 0, d.length, destinoBytes, 0),
+            d -> formatador.formatar(d, 0, d.length, destinoChars, 0),
+            d -> {
+                destinoDireto.clear();
+                formatador.formatar(d, 0, d.length, destinoDireto);
+                return destinoDireto.position();
+            },
+            d -> {
+                formatador.formatar(d, 0, d.length, nulo);
+                return d.length;
+            }
+        };
+
+        System.out.printf("Formatando %d MB como \"0000 0101\", 16 bytes por linha\n", tamanhoMB);
+        System.out.println("-------------------------------------------------------------------------");
+        System.out.printf("%-24s | %10s | %16s |\n", "Método", "MB/s", "alocado por byte");
+        double referencia = 0;
+        for (int f = 0; f < formatacoes.length; f++) {
+            Formatacao formatacao = formatacoes[f];
+            long[] amostras = Medicao.medir(3, 5, () -> formatacao.executar(dados));
+            double mbs = tamanhoMB / (Medicao.minimo(amostras) / 1e9);
+            MetricasGC.Trecho gc = MetricasGC.somar(Medicao.ultimasMetricas);
+            double alocadoPorByte = (double) gc.bytesAlocados / ((long) amostras.length * dados.length);
+            if (referencia == 0) {
+                referencia = mbs;
+            }
+            System.out.printf("%-24s | %10.1f | %14.2f B | %.1fx\n", nomes[f], mbs, alocadoPorByte, mbs / referencia);
+        }
+
+        // As duas formas precisam produzir o mesmo texto
+        byte[] amostra = Arrays.copyOf(dados, 64);
+        StringBuilder esperado = new StringBuilder();
+        for (int i = 0; i < amostra.length; i++) {
+            String b = BitwiseOperatorsExample_L6.byteToBinaryString(amostra[i]);
+            esperado.append(i == 0 ? "" : i % 16 == 0 ? "\n" : " ").append(b, 0, 4).append(' ').append(b, 4, 8);
+        }
+        byte[] texto = new byte[formatador.tamanhoSaida(amostra.length)];
+        formatador.formatar(amostra, 0, amostra.length, texto, 0);
+        boolean iguais = esperado.toString().equals(new String(texto, StandardCharsets.US_ASCII));
+        System.out.println("\nSaída igual à do byteToBinaryString: " + (iguais ? "sim" : "NÃO") + "\n");
+    }
+}
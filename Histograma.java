@@ -0,0 +1,110 @@
+/*
+
+Histograma de latências no estilo do HdrHistogram.
+
+Guardar todas as amostras para calcular percentis gasta muita memória; usar baldes de
+tamanho fixo perde precisão nos valores pequenos ou estoura nos grandes. Aqui os baldes
+crescem junto com o valor: cada potência de 2 é dividida em 64 baldes iguais, então o
+erro de qualquer valor registrado é menor que 1/64 (~1,6%), seja ele 100 ns ou 10 s.
+Valores abaixo de 128 são guardados exatos.
+
+*/
+
+public class Histograma {
+
+    private static final int BITS_SUB_BALDES = 6;
+    private static final int SUB_BALDES = 1 << BITS_SUB_BALDES;      // 64 baldes por potência de 2
+    private static final int LIMITE_EXATO = 2 * SUB_BALDES;           // abaixo disto, valor exato
+
+    private final long[] contagens = new long[(64 - BITS_SUB_BALDES) * SUB_BALDES];
+    private long total;
+    private long soma;
+    private long minimo = Long.MAX_VALUE;
+    private long maximo;
+
+    static int indice(long valor) {
+        if (valor < LIMITE_EXATO) {
+            return (int) valor;
+        }
+        int deslocamento = 63 - Long.numberOfLeadingZeros(valor) - BITS_SUB_BALDES;
+        return (deslocamento + 1) * SUB_BALDES + (int) ((valor >>> deslocamento) - SUB_BALDES);
+    }
+
+    /**
+     * Menor valor que cai no balde indicado.
+     */
+    static long valorDoIndice(int indice) {
+        if (indice < LIMITE_EXATO) {
+            return indice;
+        }
+        int deslocamento = indice / SUB_BALDES - 1;
+        return (long) (indice % SUB_BALDES + SUB_BALDES) << deslocamento;
+    }
+
+    public void registrar(long valor) {
+        if (valor < 0) {
+            throw new IllegalArgumentException("Valor negativo: " + valor);
+        }
+        contagens[indice(valor)]++;
+        total++;
+        soma += valor;
+        minimo = Math.min(minimo, valor);
+        maximo = Math.max(maximo, valor);
+    }
+
+    /**
+     * Valor abaixo do qual estão 'percentil' por cento das amostras (ex: 99.9).
+     */
+    public long percentil(double percentil) {
+        if (total == 0) {
+            return 0;
+        }
+        long alvo = Math.max(1, (long) Math.ceil(total * percentil / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < contagens.length; i++) {
+            acumulado += contagens[i];
+            if (acumulado >= alvo) {
+                // Meio do balde, mas nunca além do maior valor registrado
+                long inicio = valorDoIndice(i);
+                long largura = valorDoIndice(i + 1) - inicio;
+                return Math.min(maximo, inicio + largura / 2);
+            }
+        }
+        return maximo;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    public double media() {
+        return total == 0 ? 0 : (double) soma / total;
+    }
+
+    public long minimo() {
+        return total == 0 ? 0 : minimo;
+    }
+
+    public long maximo() {
+        return maximo;
+    }
+
+    public void juntar(Histograma outro) {
+        for (int i = 0; i < contagens.length; i++) {
+            contagens[i] += outro.contagens[i];
+        }
+        total += outro.total;
+        soma += outro.soma;
+        minimo = Math.min(minimo, outro.minimo);
+        maximo = Math.max(maximo, outro.maximo);
+    }
+
+    /**
+     * Resumo em microssegundos, supondo que os valores registrados são nanossegundos.
+     */
+    public String resumoMicros() {
+        return String.format("p50 %8.2f | p90 %8.2f | p99 %8.2f | p99.9 %8.2f | máx %9.2f µs",
+                             percentil(50) / 1000.0, percentil(90) / 1000.0, percentil(99) / 1000.0,
+                             percentil(99.9) / 1000.0, maximo / 1000.0);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+
+Núcleos (kernels) de soma usados pelos experimentos, em versão escalar e vetorial (SIMD).
+
+Os laços de soma dos experimentos (RAMvsDisco.somarBytes, CacheTamanhoLinha.acessarComSalto,
+CacheLocalidadeEspacial.percorrerPorLinha) somam um elemento por vez. Para arrays que cabem
+no cache, quem limita a velocidade é a própria CPU (uma soma por ciclo, mais ou menos), não
+a memória. Com instruções SIMD a CPU soma 16, 32 ou 64 bytes por instrução, e a velocidade
+passa a ser limitada pela largura de banda da memória, que é o que queremos medir.
+
+A versão vetorial usa a Vector API (módulo jdk.incubator.vector), que só está disponível
+quando a JVM é iniciada com --add-modules jdk.incubator.vector (o Makefile já faz isso).
+Sem o módulo, ou com -Dkernel=escalar, todos os métodos usam a versão escalar.
+
+*/
+
+public class KernelsSoma {
+
+    // true se a Vector API estiver disponível e não tiver sido desligada com -Dkernel=escalar
+    public static final boolean VETORIAL_DISPONIVEL =
+            !"escalar".equals(System.getProperty("kernel"))
+            && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    public static String nome() {
+        return VETORIAL_DISPONIVEL ? "vetorial" : "escalar";
+    }
+
+    // --- Versões escalares ---
+
+    public static long somarBytesEscalar(byte[] dados) {
+        long soma = 0;
+        for (byte b : dados) {
+            soma += b;
+        }
+        return soma;
+    }
+
+    public static long somarIntsEscalar(int[] dados) {
+        long soma = 0;
+        for (int i = 0; i < dados.length; i++) {
+            soma += dados[i];
+        }
+        return soma;
+    }
+
+    public static long somarComSaltoEscalar(int[] dados, int salto) {
+        long soma = 0;
+        for (int i = 0; i < dados.length; i += salto) {
+            soma += dados[i];
+        }
+        return soma;
+    }
+
+    // --- Versões que escolhem o kernel vetorial quando disponível ---
+
+    public static long somarBytes(byte[] dados) {
+        return VETORIAL_DISPONIVEL ? KernelsVetoriais.somarBytes(dados) : somarBytesEscalar(dados);
+    }
+
+    public static long somarInts(int[] dados) {
+        return VETORIAL_DISPONIVEL ? KernelsVetoriais.somarInts(dados) : somarIntsEscalar(dados);
+    }
+
+    public static long somarComSalto(int[] dados, int salto) {
+        return VETORIAL_DISPONIVEL ? KernelsVetoriais.somarComSalto(dados, salto)
+                                   : somarComSaltoEscalar(dados, salto);
+    }
+}
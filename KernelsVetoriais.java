@@ -0,0 +1,101 @@
+/*
+
+Implementação vetorial (SIMD) dos kernels de soma, com a Vector API (jdk.incubator.vector).
+Não use esta classe diretamente: KernelsSoma decide se ela pode ser usada nesta JVM.
+
+Cada método processa o array em blocos do tamanho de um vetor da CPU (por exemplo, 32 bytes
+com AVX2) e termina os elementos que sobram com um laço escalar.
+
+*/
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+class KernelsVetoriais {
+
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    // Mesmo número de bits que BYTES: cada vetor de bytes vira 4 vetores de ints
+    private static final VectorSpecies<Integer> INTS_DE_BYTES = VectorSpecies.of(int.class, BYTES.vectorShape());
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    // Cada vetor de ints vira 2 vetores de longs
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+    // Os acumuladores de int são esvaziados em um long antes de poderem estourar:
+    // cada pista recebe até 4 bytes (|valor| <= 128) por iteração, e 2^22 * 4 * 128 <= 2^31.
+    private static final int ITERACOES_ANTES_DE_ESVAZIAR = 1 << 22;
+
+    static long somarBytes(byte[] dados) {
+        long soma = 0;
+        IntVector acumulador = IntVector.zero(INTS_DE_BYTES);
+        int limite = BYTES.loopBound(dados.length);
+        int iteracoes = 0;
+        int i = 0;
+        for (; i < limite; i += BYTES.length()) {
+            ByteVector v = ByteVector.fromArray(BYTES, dados, i);
+            for (int parte = 0; parte < 4; parte++) {
+                acumulador = acumulador.add((IntVector) v.convertShape(VectorOperators.B2I, INTS_DE_BYTES, parte));
+            }
+            if (++iteracoes == ITERACOES_ANTES_DE_ESVAZIAR) {
+                soma += acumulador.reduceLanesToLong(VectorOperators.ADD);
+                acumulador = IntVector.zero(INTS_DE_BYTES);
+                iteracoes = 0;
+            }
+        }
+        soma += acumulador.reduceLanesToLong(VectorOperators.ADD);
+        for (; i < dados.length; i++) {
+            soma += dados[i];
+        }
+        return soma;
+    }
+
+    static long somarInts(int[] dados) {
+        LongVector acumulador = LongVector.zero(LONGS);
+        int limite = INTS.loopBound(dados.length);
+        int partes = INTS.length() / LONGS.length();
+        int i = 0;
+        for (; i < limite; i += INTS.length()) {
+            IntVector v = IntVector.fromArray(INTS, dados, i);
+            for (int parte = 0; parte < partes; parte++) {
+                acumulador = acumulador.add((LongVector) v.convertShape(VectorOperators.I2L, LONGS, parte));
+            }
+        }
+        long soma = acumulador.reduceLanes(VectorOperators.ADD);
+        for (; i < dados.length; i++) {
+            soma += dados[i];
+        }
+        return soma;
+    }
+
+    /**
+     * Soma dados[0], dados[salto], dados[2 * salto], ... usando leituras "gather"
+     * (um vetor carregado a partir de vários endereços espalhados).
+     */
+    static long somarComSalto(int[] dados, int salto) {
+        if (salto == 1) {
+            return somarInts(dados);
+        }
+        int[] deslocamentos = new int[INTS.length()];
+        for (int k = 0; k < deslocamentos.length; k++) {
+            deslocamentos[k] = k * salto;
+        }
+        LongVector acumulador = LongVector.zero(LONGS);
+        int partes = INTS.length() / LONGS.length();
+        long passo = (long) salto * INTS.length();
+        int i = 0;
+        // O último índice do vetor (i + (lanes - 1) * salto) precisa estar dentro do array
+        for (; (long) i + passo - salto < dados.length; i += passo) {
+            IntVector v = IntVector.fromArray(INTS, dados, i, deslocamentos, 0);
+            for (int parte = 0; parte < partes; parte++) {
+                acumulador = acumulador.add((LongVector) v.convertShape(VectorOperators.I2L, LONGS, parte));
+            }
+        }
+        long soma = acumulador.reduceLanes(VectorOperators.ADD);
+        for (; i < dados.length; i += salto) {
+            soma += dados[i];
+        }
+        return soma;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+
+Experimento: Latência de Leituras Aleatórias de 4 KB
+
+O RAMvsDisco lê o arquivo inteiro, do começo ao fim, e imprime só o tempo total. Um
+banco de dados ou um cache, porém, faz leituras pequenas em posições aleatórias, e o que
+importa para quem espera a resposta é a LATÊNCIA de cada leitura, principalmente a das
+leituras mais lentas (os percentis altos: p99, p99.9).
+
+Aqui lemos blocos de 4 KB em posições aleatórias (alinhadas a 4 KB) de três formas:
+- PREAD:   FileChannel.read(buffer, posicao), uma chamada de sistema por leitura.
+- MMAP:    cópia a partir de um MappedByteBuffer; sem chamada de sistema, mas uma falta de
+           página quando a página ainda não está mapeada.
+- RAM:     cópia a partir de um byte[] com o arquivo inteiro, o equivalente em memória.
+
+O tempo de cada leitura vai para um Histograma, e no fim imprimimos os percentis e as
+operações por segundo (IOPS). Antes de PREAD e MMAP o arquivo é retirado do cache de páginas
+(ver CacheDePaginas); à medida que as leituras avançam, o cache volta a esquentar. Se não
+for possível esvaziar o cache, o resultado é marcado: as leituras vêm da RAM, não do disco.
+O aquecimento do JIT usa outro arquivo, pequeno: páginas ainda mapeadas por um
+MappedByteBuffer do aquecimento poderiam continuar no cache mesmo depois do esvaziamento.
+
+Uso: java -cp bin LatenciaAleatoria [tamanhoMB] [leituras]
+
+*/
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+public class LatenciaAleatoria {
+
+    private static final int TAMANHO_BLOCO = 4096;
+    // Tamanho de cada pedaço mapeado; precisa ser menor que 2 GB
+    private static final long TAMANHO_MAPEAMENTO = 1L << 30;
+
+    /**
+     * Sorteia 'quantidade' posições alinhadas a TAMANHO_BLOCO dentro do arquivo.
+     * A mesma semente gera as mesmas posições para os três modos.
+     */
+    static long[] sortearPosicoes(long tamanhoArquivo, int quantidade, long semente) {
+        SplittableRandom random = new SplittableRandom(semente);
+        long blocos = tamanhoArquivo / TAMANHO_BLOCO;
+        long[] posicoes = new long[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            posicoes[i] = random.nextLong(blocos) * TAMANHO_BLOCO;
+        }
+        return posicoes;
+    }
+
+    public static Histograma medirPread(File arquivo, long[] posicoes) throws IOException {
+        Histograma histograma = new Histograma();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BLOCO);
+        long soma = 0;
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+            for (long posicao : posicoes) {
+                buffer.clear();
+                long inicio = System.nanoTime();
+                while (buffer.hasRemaining() && canal.read(buffer, posicao + buffer.position()) > 0) {
+                    // continua até ler o bloco inteiro
+                }
+                soma += buffer.get(0);
+                histograma.registrar(System.nanoTime() - inicio);
+            }
+        }
+        Medicao.buracoNegro = soma;
+        return histograma;
+    }
+
+    public static Histograma medirMmap(File arquivo, long[] posicoes) throws IOException {
+        Histograma histograma = new Histograma();
+        byte[] destino = new byte[TAMANHO_BLOCO];
+        long soma = 0;
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            MappedByteBuffer[] mapas = new MappedByteBuffer[(int) ((tamanho + TAMANHO_MAPEAMENTO - 1) / TAMANHO_MAPEAMENTO)];
+            for (int m = 0; m < mapas.length; m++) {
+                long inicio = m * TAMANHO_MAPEAMENTO;
+                mapas[m] = canal.map(FileChannel.MapMode.READ_ONLY, inicio, Math.min(TAMANHO_MAPEAMENTO, tamanho - inicio));
+            }
+            for (long posicao : posicoes) {
+                long inicio = System.nanoTime();
+                // Os pedaços são múltiplos de 4 KB, então um bloco nunca cruza dois pedaços
+                mapas[(int) (posicao / TAMANHO_MAPEAMENTO)].get((int) (posicao % TAMANHO_MAPEAMENTO), destino);
+                soma += destino[0];
+                histograma.registrar(System.nanoTime() - inicio);
+            }
+        }
+        Medicao.buracoNegro = soma;
+        return histograma;
+    }
+
+    public static Histograma medirRam(byte[] dados, long[] posicoes) {
+        Histograma histograma = new Histograma();
+        byte[] destino = new byte[TAMANHO_BLOCO];
+        long soma = 0;
+        for (long posicao : posicoes) {
+            long inicio = System.nanoTime();
+            System.arraycopy(dados, (int) posicao, destino, 0, TAMANHO_BLOCO);
+            soma += destino[0];
+            histograma.registrar(System.nanoTime() - inicio);
+        }
+        Medicao.buracoNegro = soma;
+        return histograma;
+    }
+
+    private static void imprimir(String nome, Histograma h, long nanosTotais) {
+        System.out.printf("%-6s %s | %10.0f IOPS\n", nome, h.resumoMicros(), h.total() / (nanosTotais / 1e9));
+    }
+
+    // O aviso de cache não esvaziado é impresso uma vez só
+    private static boolean avisouCacheQuente;
+
+    /**
+     * Recebe o resultado do CacheDePaginas e avisa, uma vez, quando o cache não foi
+     * esvaziado. Retorna true se o arquivo saiu do cache.
+     */
+    private static boolean avisarSeQuente(String metodo) {
+        if (metodo == null && !avisouCacheQuente) {
+            System.out.println("* o cache do S.O. não pôde ser esvaziado (ver CacheDePaginas): "
+                               + "as leituras marcadas vêm da RAM, não do disco");
+            avisouCacheQuente = true;
+        }
+        return metodo != null;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int tamanhoMB = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+        int leituras = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        File arquivo = new File("latencia_aleatoria.dat");
+        if (arquivo.length() != tamanhoMB * 1024L * 1024L) {
+            System.out.printf("Criando arquivo de %d MB...\n", tamanhoMB);
+            RAMvsDisco.criarArquivoTemporario(arquivo, tamanhoMB * 1024L * 1024L);
+        }
+
+        System.out.printf("%d leituras aleatórias de %d bytes em um arquivo de %d MB\n",
+                          leituras, TAMANHO_BLOCO, tamanhoMB);
+        System.out.println("-------------------------------------------------------------------------------------------------");
+
+        // Aquecimento do JIT em um arquivo separado, para que nenhum mapeamento do
+        // aquecimento segure páginas do arquivo medido no cache
+        File arquivoAquecimento = new File("latencia_aquecimento.dat");
+        try {
+            RAMvsDisco.criarArquivoTemporario(arquivoAquecimento, Math.min(arquivo.length(), 16L * 1024 * 1024));
+            long[] posicoesAquecimento = sortearPosicoes(arquivoAquecimento.length(), 20_000, 1);
+            medirPread(arquivoAquecimento, posicoesAquecimento);
+            medirMmap(arquivoAquecimento, posicoesAquecimento);
+        } finally {
+            arquivoAquecimento.delete();
+        }
+
+        long[] posicoes = sortearPosicoes(arquivo.length(), leituras, 42);
+        CacheDePaginas.prepararPreenchimento();
+
+        boolean frio = avisarSeQuente(CacheDePaginas.esvaziarOuPreencher(arquivo));
+        long inicio = System.nanoTime();
+        Histograma pread = medirPread(arquivo, posicoes);
+        imprimir(frio ? "PREAD" : "PREAD*", pread, System.nanoTime() - inicio);
+
+        frio = avisarSeQuente(CacheDePaginas.esvaziarOuPreencher(arquivo));
+        inicio = System.nanoTime();
+        Histograma mmap = medirMmap(arquivo, posicoes);
+        imprimir(frio ? "MMAP" : "MMAP*", mmap, System.nanoTime() - inicio);
+
+        if (arquivo.length() <= Integer.MAX_VALUE - 8) {
+            byte[] dados = Files.readAllBytes(arquivo.toPath());
+            medirRam(dados, sortearPosicoes(arquivo.length(), 20_000, 1));
+            inicio = System.nanoTime();
+            Histograma ram = medirRam(dados, posicoes);
+            imprimir("RAM", ram, System.nanoTime() - inicio);
+            System.out.printf("\nNo p99, PREAD foi %.1fx e MMAP %.1fx mais lento que a RAM.\n\n",
+                              (double) pread.percentil(99) / ram.percentil(99),
+                              (double) mmap.percentil(99) / ram.percentil(99));
+        } else {
+            System.out.println("RAM    arquivo maior que 2 GB não cabe em um byte[]; pulado\n");
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+
+Experimento: Leitura Paralela e Assíncrona de Arquivos
+
+O RAMvsDisco lê o arquivo do começo ao fim com uma única thread: só existe UM pedido de
+leitura pendente no disco por vez. Discos NVMe (e muitos SSDs SATA) têm várias filas e
+conseguem atender dezenas de pedidos ao mesmo tempo, então uma única leitura sequencial
+não aproveita toda a capacidade do dispositivo.
+
+Aqui o arquivo é dividido em N faixas (N = nível de concorrência) e cada faixa é lida com
+leituras posicionais (FileChannel.read(buffer, posicao), o pread do Linux), que não
+dependem de uma posição compartilhada no arquivo. Três formas de manter N leituras em voo:
+- POOL:         um pool fixo com N threads de plataforma.
+- VIRTUAIS:     uma thread virtual por faixa (Java 21+; em versões anteriores o caso é
+                pulado).
+- ASSINCRONO:   um AsynchronousFileChannel com N leituras pendentes; cada leitura
+                concluída dispara a próxima da mesma faixa.
+
+Antes de cada medição o arquivo é retirado do cache de páginas (ver CacheDePaginas), para
+que a vazão medida seja a do dispositivo.
+
+Uso: java -cp bin LeitorParalelo [tamanhoMB] [concorrenciaMaxima]
+
+*/
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LeitorParalelo {
+
+    private static final int TAMANHO_BLOCO = 1024 * 1024; // Cada leitura traz 1 MB
+
+    /**
+     * Lê a faixa [inicio, fim) do canal com leituras posicionais.
+     */
+    static long lerFaixa(FileChannel canal, long inicio, long fim) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BLOCO);
+        long posicao = inicio;
+        while (posicao < fim) {
+            buffer.clear().limit((int) Math.min(TAMANHO_BLOCO, fim - posicao));
+            int lidos = canal.read(buffer, posicao);
+            if (lidos < 0) {
+                break;
+            }
+            posicao += lidos;
+        }
+        return posicao - inicio;
+    }
+
+    /**
+     * Lê o arquivo em 'faixas' partes, cada uma em uma tarefa do executor.
+     */
+    public static long lerComExecutor(File arquivo, int faixas, ExecutorService executor) throws Exception {
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            long tamanhoFaixa = (tamanho + faixas - 1) / faixas;
+            List<Future<Long>> tarefas = new ArrayList<>();
+            for (int f = 0; f < faixas; f++) {
+                long inicio = Math.min(tamanho, f * tamanhoFaixa);
+                long fim = Math.min(tamanho, inicio + tamanhoFaixa);
+                tarefas.add(executor.submit(() -> lerFaixa(canal, inicio, fim)));
+            }
+            long bytesLidos = 0;
+            for (Future<Long> tarefa : tarefas) {
+                bytesLidos += tarefa.get();
+            }
+            return bytesLidos;
+        }
+    }
+
+    public static long lerComPool(File arquivo, int concorrencia) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(concorrencia);
+        try {
+            return lerComExecutor(arquivo, concorrencia, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Cria um executor de threads virtuais, se a JVM suportar (Java 21+). Usamos reflexão
+     * para que o código continue compilando em versões anteriores. Retorna null se não houver.
+     */
+    static ExecutorService executorVirtual() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    public static long lerComThreadsVirtuais(File arquivo, int concorrencia) throws Exception {
+        ExecutorService executor = executorVirtual();
+        if (executor == null) {
+            return -1;
+        }
+        try {
+            return lerComExecutor(arquivo, concorrencia, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Mantém 'concorrencia' leituras pendentes em um AsynchronousFileChannel. Cada faixa
+     * tem seu buffer; quando uma leitura termina, o tratador pede o próximo bloco da faixa.
+     */
+    public static long lerAssincrono(File arquivo, int concorrencia) throws Exception {
+        try (AsynchronousFileChannel canal = AsynchronousFileChannel.open(arquivo.toPath(),
+                                                                          StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            long tamanhoFaixa = (tamanho + concorrencia - 1) / concorrencia;
+            AtomicLong bytesLidos = new AtomicLong();
+            List<CompletableFuture<Void>> faixas = new ArrayList<>();
+
+            for (int f = 0; f < concorrencia; f++) {
+                long inicio = Math.min(tamanho, f * tamanhoFaixa);
+                long fim = Math.min(tamanho, inicio + tamanhoFaixa);
+                CompletableFuture<Void> concluida = new CompletableFuture<>();
+                faixas.add(concluida);
+
+                ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BLOCO);
+                CompletionHandler<Integer, Long> tratador = new CompletionHandler<Integer, Long>() {
+                    @Override
+                    public void completed(Integer lidos, Long posicao) {
+                        long proxima = posicao + Math.max(lidos, 0);
+                        bytesLidos.addAndGet(Math.max(lidos, 0));
+                        if (lidos < 0 || proxima >= fim) {
+                            concluida.complete(null);
+                            return;
+                        }
+                        buffer.clear().limit((int) Math.min(TAMANHO_BLOCO, fim - proxima));
+                        canal.read(buffer, proxima, proxima, this);
+                    }
+
+                    @Override
+                    public void failed(Throwable erro, Long posicao) {
+                        concluida.completeExceptionally(erro);
+                    }
+                };
+
+                if (inicio >= fim) {
+                    concluida.complete(null);
+                } else {
+                    buffer.limit((int) Math.min(TAMANHO_BLOCO, fim - inicio));
+                    canal.read(buffer, inicio, inicio, tratador);
+                }
+            }
+
+            CompletableFuture.allOf(faixas.toArray(new CompletableFuture<?>[0])).get();
+            return bytesLidos.get();
+        }
+    }
+
+    public static long ler(String modo, File arquivo, int concorrencia) throws Exception {
+        switch (modo) {
+            case "pool":
+                return lerComPool(arquivo, concorrencia);
+            case "virtuais":
+                return lerComThreadsVirtuais(arquivo, concorrencia);
+            case "assincrono":
+                return lerAssincrono(arquivo, concorrencia);
+            default:
+                throw new IllegalArgumentException("Modo de leitura desconhecido: " + modo);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int tamanhoMB = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+        int concorrenciaMaxima = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        File arquivo = new File("leitura_paralela.dat");
+        if (arquivo.length() != tamanhoMB * 1024L * 1024L) {
+            System.out.printf("Criando arquivo de %d MB...\n", tamanhoMB);
+            RAMvsDisco.criarArquivoTemporario(arquivo, tamanhoMB * 1024L * 1024L);
+        }
+
+        String[] modos = {"pool", "virtuais", "assincrono"};
+        System.out.println("Leitura paralela de " + tamanhoMB + " MB com o cache do S.O. esvaziado antes de cada leitura");
+        System.out.println("-------------------------------------------------------------------------");
+        System.out.printf("%12s |%14s |%14s |%14s\n", "Concorrência", "POOL MB/s", "VIRTUAIS MB/s", "ASSINC. MB/s");
+
+        boolean algumNaoEsvaziado = false;
+        for (int concorrencia = 1; concorrencia <= concorrenciaMaxima; concorrencia *= 2) {
+            System.out.printf("%12d |", concorrencia);
+            for (String modo : modos) {
+                // Marcado com * na tabela quando a leitura pode ter vindo do cache do S.O.
+                boolean naoEsvaziado = CacheDePaginas.esvaziar(arquivo) == null;
+                algumNaoEsvaziado |= naoEsvaziado;
+                String marca = naoEsvaziado ? "*" : " ";
+                long inicio = System.nanoTime();
+                long bytesLidos = ler(modo, arquivo, concorrencia);
+                long fim = System.nanoTime();
+                if (bytesLidos < 0) {
+                    System.out.printf("%14s |", "indisponível");
+                } else {
+                    System.out.printf("%14.2f%s|", bytesLidos / (1024.0 * 1024.0) / ((fim - inicio) / 1e9), marca);
+                }
+            }
+            System.out.println();
+        }
+        if (algumNaoEsvaziado) {
+            System.out.println("* o cache do S.O. não pôde ser esvaziado antes desta leitura (ver CacheDePaginas)");
+        }
+        System.out.println("\nA concorrência a partir da qual a vazão para de crescer é a que o dispositivo recompensa.\n");
+    }
+}
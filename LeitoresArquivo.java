@@ -0,0 +1,139 @@
+/*
+
+Caminhos de leitura de arquivo usados pelo experimento RAMvsDisco.
+
+O RAMvsDisco original lê o arquivo com um BufferedInputStream, que faz duas cópias:
+do cache de páginas do S.O. para o buffer interno do stream (8 KB) e do buffer interno
+para o nosso byte[]. Aqui estão outras formas de ler o mesmo arquivo:
+
+- STREAM:        o caminho original (FileInputStream + BufferedInputStream).
+- CANAL HEAP:    FileChannel.read em um ByteBuffer no heap. A JVM lê para um buffer
+                 nativo temporário e copia para o heap (ainda duas cópias).
+- CANAL DIRETO:  FileChannel.read em um ByteBuffer.allocateDirect. O S.O. copia direto
+                 para a memória nativa do buffer (uma cópia).
+- MAPEADO:       FileChannel.map (mmap). As páginas do arquivo são mapeadas no espaço de
+                 endereços do processo e lidas sem nenhuma cópia, mas cada página nova
+                 custa uma falta de página. Um MappedByteBuffer tem no máximo 2 GB, então
+                 arquivos maiores são mapeados em pedaços.
+- TRANSFERTO:    FileChannel.transferTo para /dev/null. Em Linux vira sendfile: os dados
+                 passam pelo kernel e nunca chegam ao espaço do usuário.
+- O_DIRECT:      FileChannel com ExtendedOpenOption.DIRECT, que ignora o cache de páginas
+                 do S.O. e sempre vai ao disco (ver CacheDePaginas).
+
+Todos os métodos retornam o número de bytes lidos. No caso MAPEADO, um byte de cada
+página é lido (e somado), o que é suficiente para obrigar o S.O. a carregá-la.
+
+*/
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+public class LeitoresArquivo {
+
+    private static final int TAMANHO_BUFFER = 8192;
+    private static final int TAMANHO_PAGINA = 4096;
+    // Tamanho de cada pedaço mapeado; precisa ser menor que 2 GB
+    private static final long TAMANHO_MAPEAMENTO = 1L << 30;
+
+    public static final String[] CAMINHOS = {"stream", "canalHeap", "canalDireto", "mapeado", "transferTo", "oDirect"};
+
+    public static long ler(String caminho, File arquivo) throws IOException {
+        switch (caminho) {
+            case "stream":
+                return RAMvsDisco.lerComStream(arquivo);
+            case "canalHeap":
+                return lerComCanal(arquivo, ByteBuffer.allocate(TAMANHO_BUFFER));
+            case "canalDireto":
+                return lerComCanal(arquivo, ByteBuffer.allocateDirect(TAMANHO_BUFFER));
+            case "mapeado":
+                return lerMapeado(arquivo);
+            case "transferTo":
+                return lerComTransferTo(arquivo);
+            case "oDirect":
+                return CacheDePaginas.lerComODirect(arquivo);
+            default:
+                throw new IllegalArgumentException("Caminho de leitura desconhecido: " + caminho);
+        }
+    }
+
+    /**
+     * Lê o arquivo inteiro com FileChannel.read, reaproveitando o buffer informado.
+     */
+    public static long lerComCanal(File arquivo, ByteBuffer buffer) throws IOException {
+        long bytesLidos = 0;
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+            int lidos;
+            while ((lidos = canal.read(buffer)) != -1) {
+                bytesLidos += lidos;
+                buffer.clear();
+            }
+        }
+        return bytesLidos;
+    }
+
+    /**
+     * Mapeia o arquivo em pedaços de até 1 GB e toca um byte de cada página.
+     */
+    public static long lerMapeado(File arquivo) throws IOException {
+        long soma = 0;
+        long tamanho;
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+            tamanho = canal.size();
+            for (long posicao = 0; posicao < tamanho; posicao += TAMANHO_MAPEAMENTO) {
+                long tamanhoPedaco = Math.min(TAMANHO_MAPEAMENTO, tamanho - posicao);
+                MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, posicao, tamanhoPedaco);
+                for (int i = 0; i < tamanhoPedaco; i += TAMANHO_PAGINA) {
+                    soma += mapa.get(i);
+                }
+            }
+        }
+        Medicao.buracoNegro = soma; // Consome a soma
+        return tamanho;
+    }
+
+    /**
+     * Transfere o arquivo inteiro para /dev/null sem passar pelo espaço do usuário.
+     * Onde /dev/null não existe, usa um canal que descarta os dados.
+     */
+    public static long lerComTransferTo(File arquivo) throws IOException {
+        File nulo = new File("/dev/null");
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ);
+             WritableByteChannel destino = nulo.exists()
+                     ? new FileOutputStream(nulo).getChannel()
+                     : Channels.newChannel(OutputStream.nullOutputStream())) {
+            long tamanho = canal.size();
+            long posicao = 0;
+            while (posicao < tamanho) {
+                posicao += canal.transferTo(posicao, tamanho - posicao, destino);
+            }
+            return posicao;
+        }
+    }
+
+    /**
+     * Lê o arquivo por todos os caminhos e imprime a vazão de cada um.
+     */
+    public static void compararCaminhos(File arquivo) throws IOException {
+        for (String caminho : CAMINHOS) {
+            ler(caminho, arquivo); // Aquecimento (e garante o arquivo no cache do S.O.)
+            long inicio = System.nanoTime();
+            long bytesLidos = ler(caminho, arquivo);
+            long fim = System.nanoTime();
+            if (bytesLidos < 0) {
+                System.out.printf("%-12s não suportado neste sistema de arquivos\n", caminho);
+                continue;
+            }
+            double ms = (fim - inicio) / 1_000_000.0;
+            System.out.printf("%-12s %8.2f ms | %8.2f MB/s\n",
+                              caminho, ms, bytesLidos / (1024.0 * 1024.0) / (ms / 1000.0));
+        }
+    }
+}
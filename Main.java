@@ -0,0 +1,169 @@
+/*
+
+Ponto de entrada único dos experimentos (é o que o "make run" executa).
+
+Cada experimento continua tendo o seu próprio main, mas aqui dá para escolher quais rodar
+e com que tamanhos, sem lembrar o nome de cada classe. Como os dados de cada experimento
+só são criados no primeiro uso (classes Dados internas) e em paralelo (DadosAleatorios),
+rodar um experimento pequeno não paga mais a criação dos arrays de todos os outros.
+
+Os argumentos depois do nome de um experimento vão para o main dele (ex: o tamanho em MB
+do VarreduraBuffers), até um "--", que separa um experimento do próximo. Sem o separador,
+um argumento como o "temporal" do VarreduraTamanho seria confundido com um experimento.
+Os experimentos originais, que não recebem argumentos, leem o
+tamanho de propriedades do sistema, que podem ser definidas com -p:
+- espacial.tamanho: lado da matriz do CacheLocalidadeEspacial (10000)
+- temporal.tamanho: tamanho do array do CacheLocalidadeTemporal (10000)
+- linha.tamanhoMB:  tamanho do array do CacheTamanhoLinha, em MB (512)
+
+Sem experimentos, roda os três originais: espacial, temporal e linha.
+
+Uso:
+  java -cp bin Main [-l] [-p propriedade=valor]... [experimento [argumentos...] [-- experimento ...]]
+
+Exemplos:
+  java -cp bin Main -l
+  java -cp bin Main espacial -p espacial.tamanho=4000
+  java -cp bin Main linha -p linha.tamanhoMB=64 -- buffers 128 -- temporal
+  java -cp bin Main varredura temporal 4 64
+
+*/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class Main {
+
+    interface Experimento {
+        void executar(String[] args) throws Exception;
+    }
+
+    static class Entrada {
+        final String classe;
+        final String descricao;
+        final Experimento experimento;
+
+        Entrada(String classe, String descricao, Experimento experimento) {
+            this.classe = classe;
+            this.descricao = descricao;
+            this.experimento = experimento;
+        }
+    }
+
+    private static final Map<String, Entrada> EXPERIMENTOS = new LinkedHashMap<>();
+
+    private static final String[] PADRAO = {"espacial", "temporal", "linha"};
+
+    private static void registrar(String nome, String classe, String descricao, Experimento experimento) {
+        EXPERIMENTOS.put(nome, new Entrada(classe, descricao, experimento));
+    }
+
+    static {
+        registrar("espacial", "CacheLocalidadeEspacial", "matriz por linha, por coluna e em blocos",
+                  CacheLocalidadeEspacial::main);
+        registrar("temporal", "CacheLocalidadeTemporal", "soma espalhada x soma repetida",
+                  CacheLocalidadeTemporal::main);
+        registrar("linha", "CacheTamanhoLinha", "saltos de 1 a 128 ints sobre um array grande",
+                  CacheTamanhoLinha::main);
+        registrar("matriz", "ArmazenamentoMatriz", "[tamanho] int[][], array plano e fora do heap",
+                  ArmazenamentoMatriz::main);
+        registrar("paralela", "CacheLocalidadeParalela", "[threads] varredura da matriz com fork/join",
+                  CacheLocalidadeParalela::main);
+        registrar("falso", "CacheFalsoCompartilhamento", "contadores na mesma linha de cache",
+                  CacheFalsoCompartilhamento::main);
+        registrar("varredura", "VarreduraTamanho", "[linha|temporal] [menorKB] [maiorMB] ... curva por tamanho",
+                  VarreduraTamanho::main);
+        registrar("padroes", "PadroesAcesso", "[tamanhosKB] [acessos] sequencial, salto, Zipf, gather...",
+                  PadroesAcesso::main);
+        registrar("ponteiros", "PerseguicaoPonteiros", "[tamanhoMaximoMB] latência de cada nível",
+                  PerseguicaoPonteiros::main);
+        registrar("paginas", "PaginasGrandes", "[tamanhoMB] páginas de 4 KB x páginas grandes",
+                  PaginasGrandes::main);
+        registrar("numa", "MemoriaNuma", "[tamanhoMB] memória local x remota", MemoriaNuma::main);
+        registrar("disco", "RAMvsDisco", "soma na RAM x leitura do disco", RAMvsDisco::main);
+        registrar("latencia", "LatenciaAleatoria", "[tamanhoMB] [leituras] leituras aleatórias no arquivo",
+                  LatenciaAleatoria::main);
+        registrar("blocos", "CacheDeBlocos", "[tamanhoMB] [leituras] [threads] cache LRU/CLOCK/W-TinyLFU do arquivo",
+                  CacheDeBlocos::main);
+        registrar("buffers", "VarreduraBuffers", "[tamanhoMB] tamanho do buffer de leitura",
+                  VarreduraBuffers::main);
+        registrar("leitor", "LeitorParalelo", "[tamanhoMB] [concorrenciaMaxima] leitura concorrente",
+                  LeitorParalelo::main);
+        registrar("pipeline", "PipelineChecksum", "[tamanhoMB] [soma|crc32c|xxhash] leitura + checksum",
+                  PipelineChecksum::main);
+        registrar("bits", "BitwiseOperatorsExample_L6", "operadores bit a bit", BitwiseOperatorsExample_L6::main);
+        registrar("mapa", "MapaDeBits", "[milhõesDeBits] mapa de bits x BitSet x boolean[]", MapaDeBits::main);
+        registrar("binario", "FormatadorBinario", "formatação de bytes em binário", FormatadorBinario::main);
+        registrar("massa", "OperacoesBitsEmMassa", "[tamanhoMB] [threads] operações bit a bit em massa",
+                  OperacoesBitsEmMassa::main);
+    }
+
+    static void imprimirUso() {
+        System.out.println("Uso: java -cp bin Main [-l] [-p propriedade=valor]... "
+                           + "[experimento [argumentos...] [-- experimento ...]]");
+    }
+
+    static void listar() {
+        System.out.println("Experimentos:");
+        for (Map.Entry<String, Entrada> e : EXPERIMENTOS.entrySet()) {
+            System.out.printf("  %-10s %-28s %s\n", e.getKey(), e.getValue().classe, e.getValue().descricao);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Cada experimento escolhido, com os seus argumentos
+        List<String> nomes = new ArrayList<>();
+        List<List<String>> argumentos = new ArrayList<>();
+        // Verdadeiro quando o próximo argumento livre é o nome de um experimento (no
+        // início e depois de cada "--"); senão ele pertence ao experimento atual
+        boolean esperandoNome = true;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-l")) {
+                listar();
+                return;
+            } else if (arg.equals("-p")) {
+                String[] par = i + 1 < args.length ? args[++i].split("=", 2) : new String[0];
+                if (par.length != 2) {
+                    System.out.println("Esperado -p propriedade=valor");
+                    imprimirUso();
+                    return;
+                }
+                System.setProperty(par[0], par[1]);
+            } else if (arg.equals("--")) {
+                esperandoNome = true;
+            } else if (!esperandoNome) {
+                argumentos.get(argumentos.size() - 1).add(arg);
+            } else if (EXPERIMENTOS.containsKey(arg)) {
+                nomes.add(arg);
+                argumentos.add(new ArrayList<>());
+                esperandoNome = false;
+            } else {
+                System.out.println("Experimento desconhecido: " + arg);
+                imprimirUso();
+                listar();
+                return;
+            }
+        }
+        if (nomes.isEmpty()) {
+            for (String nome : PADRAO) {
+                nomes.add(nome);
+                argumentos.add(new ArrayList<>());
+            }
+        }
+
+        for (int i = 0; i < nomes.size(); i++) {
+            Entrada entrada = EXPERIMENTOS.get(nomes.get(i));
+            String[] argumentosExperimento = argumentos.get(i).toArray(new String[0]);
+            System.out.println("=== " + nomes.get(i) + ": " + entrada.classe
+                               + (argumentosExperimento.length > 0 ? " " + Arrays.toString(argumentosExperimento) : "")
+                               + " ===");
+            long inicio = System.nanoTime();
+            entrada.experimento.executar(argumentosExperimento);
+            System.out.printf("=== %s: %.1f s ===\n\n", nomes.get(i), (System.nanoTime() - inicio) / 1e9);
+        }
+    }
+}
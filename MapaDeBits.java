@@ -0,0 +1,416 @@
+/*
+
+Experimento: Mapa de Bits em long[] x java.util.BitSet x boolean[]
+
+O BitwiseOperatorsExample_L6 mostra setBit, resetBit e getBit sobre UM byte. Para guardar
+milhões de sinalizadores (flags) generalizamos essas operações para um long[]: o bit de
+índice i fica na palavra i / 64 (i >>> 6), na posição i % 64 (i & 63). Cada palavra é
+manipulada pelas versões long das mesmas funções do BitwiseOperatorsExample_L6.
+
+Guardar um sinalizador por bit ocupa 8 vezes menos memória que um boolean[] (onde cada
+boolean ocupa um byte inteiro), o que faz 8 vezes mais sinalizadores caberem em cada
+linha de cache. Além disso, operações sobre o conjunto inteiro trabalham com 64 bits por
+instrução:
+- AND/OR/XOR/ANDNOT entre dois mapas: uma operação por palavra;
+- contagem de bits ligados (popcount): Long.bitCount, que vira uma única instrução POPCNT;
+- próximo bit ligado: Long.numberOfTrailingZeros pula de uma vez os zeros de uma palavra.
+
+O main compara o MapaDeBits com o java.util.BitSet (que usa a mesma ideia) e com um
+boolean[] nas operações set, get, iterar, xor e contar.
+
+Uso: java -cp bin MapaDeBits [milhõesDeBits]
+
+*/
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+public class MapaDeBits {
+
+    public static final String[] ESTRUTURAS = {"mapa", "bitset", "booleanos"};
+    public static final String[] OPERACOES = {"set", "get", "iterar", "xor", "contar"};
+
+    private final long[] palavras;
+    private final long tamanho;
+
+    /**
+     * Cria um mapa com 'tamanho' bits, todos desligados.
+     */
+    public MapaDeBits(long tamanho) {
+        if (tamanho < 0 || (tamanho + 63) >>> 6 > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Tamanho inválido: " + tamanho);
+        }
+        this.tamanho = tamanho;
+        this.palavras = new long[(int) ((tamanho + 63) >>> 6)];
+    }
+
+    public long tamanho() {
+        return tamanho;
+    }
+
+    private void verificar(long indice) {
+        if (indice < 0 || indice >= tamanho) {
+            throw new IndexOutOfBoundsException("Índice " + indice + " fora de [0, " + tamanho + ")");
+        }
+    }
+
+    public void set(long indice) {
+        verificar(indice);
+        int p = (int) (indice >>> 6);
+        palavras[p] = BitwiseOperatorsExample_L6.setBit(palavras[p], (int) (indice & 63));
+    }
+
+    public void clear(long indice) {
+        verificar(indice);
+        int p = (int) (indice >>> 6);
+        palavras[p] = BitwiseOperatorsExample_L6.resetBit(palavras[p], (int) (indice & 63));
+    }
+
+    public void flip(long indice) {
+        verificar(indice);
+        int p = (int) (indice >>> 6);
+        palavras[p] = BitwiseOperatorsExample_L6.flipBit(palavras[p], (int) (indice & 63));
+    }
+
+    public boolean get(long indice) {
+        verificar(indice);
+        return BitwiseOperatorsExample_L6.getBit(palavras[(int) (indice >>> 6)], (int) (indice & 63)) == 1;
+    }
+
+    /*
+     * Operações sobre intervalos [de, ate). As palavras do meio são trocadas inteiras; só a
+     * primeira e a última usam máscara. -1L >>> x e -1L << x dependem só dos 6 bits baixos
+     * de x, por isso as máscaras podem ser calculadas direto dos índices.
+     */
+
+    public void setIntervalo(long de, long ate) {
+        aplicarIntervalo(de, ate, 0);
+    }
+
+    public void clearIntervalo(long de, long ate) {
+        aplicarIntervalo(de, ate, 1);
+    }
+
+    public void flipIntervalo(long de, long ate) {
+        aplicarIntervalo(de, ate, 2);
+    }
+
+    private void aplicarIntervalo(long de, long ate, int operacao) {
+        if (de < 0 || ate > tamanho || de > ate) {
+            throw new IndexOutOfBoundsException("Intervalo [" + de + ", " + ate + ") inválido");
+        }
+        if (de == ate) {
+            return;
+        }
+        int primeira = (int) (de >>> 6);
+        int ultima = (int) ((ate - 1) >>> 6);
+        long mascaraInicio = -1L << de;
+        long mascaraFim = -1L >>> -ate;
+        for (int p = primeira; p <= ultima; p++) {
+            long mascara = -1L;
+            if (p == primeira) {
+                mascara &= mascaraInicio;
+            }
+            if (p == ultima) {
+                mascara &= mascaraFim;
+            }
+            switch (operacao) {
+                case 0:
+                    palavras[p] |= mascara;
+                    break;
+                case 1:
+                    palavras[p] &= ~mascara;
+                    break;
+                default:
+                    palavras[p] ^= mascara;
+            }
+        }
+    }
+
+    /*
+     * Operações entre mapas, no próprio mapa (como no BitSet). Se o outro mapa for menor,
+     * os bits que faltam nele contam como desligados.
+     */
+
+    public void and(MapaDeBits outro) {
+        int comum = Math.min(palavras.length, outro.palavras.length);
+        for (int p = 0; p < comum; p++) {
+            palavras[p] &= outro.palavras[p];
+        }
+        for (int p = comum; p < palavras.length; p++) {
+            palavras[p] = 0;
+        }
+    }
+
+    public void or(MapaDeBits outro) {
+        int comum = Math.min(palavras.length, outro.palavras.length);
+        for (int p = 0; p < comum; p++) {
+            palavras[p] |= outro.palavras[p];
+        }
+        limparExcedente();
+    }
+
+    public void xor(MapaDeBits outro) {
+        int comum = Math.min(palavras.length, outro.palavras.length);
+        for (int p = 0; p < comum; p++) {
+            palavras[p] ^= outro.palavras[p];
+        }
+        limparExcedente();
+    }
+
+    public void andNot(MapaDeBits outro) {
+        int comum = Math.min(palavras.length, outro.palavras.length);
+        for (int p = 0; p < comum; p++) {
+            palavras[p] &= ~outro.palavras[p];
+        }
+    }
+
+    /**
+     * Desliga os bits da última palavra além de 'tamanho', que or/xor podem ter ligado
+     * quando o outro mapa é maior.
+     */
+    private void limparExcedente() {
+        if (palavras.length > 0 && (tamanho & 63) != 0) {
+            palavras[palavras.length - 1] &= -1L >>> -tamanho;
+        }
+    }
+
+    /**
+     * Número de bits ligados.
+     */
+    public long cardinalidade() {
+        long total = 0;
+        for (long palavra : palavras) {
+            total += Long.bitCount(palavra);
+        }
+        return total;
+    }
+
+    /**
+     * Índice do primeiro bit ligado a partir de 'de' (inclusive), ou -1 se não houver.
+     * Uso típico: for (long i = m.proximoSetado(0); i >= 0; i = m.proximoSetado(i + 1))
+     */
+    public long proximoSetado(long de) {
+        if (de < 0) {
+            throw new IndexOutOfBoundsException("Índice negativo: " + de);
+        }
+        if (de >= tamanho) {
+            return -1;
+        }
+        int p = (int) (de >>> 6);
+        long palavra = palavras[p] & (-1L << de); // ignora os bits antes de 'de'
+        while (true) {
+            if (palavra != 0) {
+                return ((long) p << 6) + Long.numberOfTrailingZeros(palavra);
+            }
+            if (++p == palavras.length) {
+                return -1;
+            }
+            palavra = palavras[p];
+        }
+    }
+
+    /**
+     * Monta a tarefa medida de uma operação sobre uma das estruturas, com 'bits' bits e
+     * 1/8 deles ligados em posições aleatórias. Usada pelo main e pelo Benchmarks.
+     */
+    public static Medicao.Tarefa criarTarefa(String estrutura, String operacao, int bits, long semente) {
+        int[] indices = new int[bits / 8];
+        SplittableRandom random = new SplittableRandom(semente);
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = random.nextInt(bits);
+        }
+        int[] outros = new int[bits / 8];
+        for (int i = 0; i < outros.length; i++) {
+            outros[i] = random.nextInt(bits);
+        }
+
+        switch (estrutura) {
+            case "mapa": {
+                MapaDeBits a = new MapaDeBits(bits);
+                MapaDeBits b = new MapaDeBits(bits);
+                for (int i : indices) {
+                    a.set(i);
+                }
+                for (int i : outros) {
+                    b.set(i);
+                }
+                switch (operacao) {
+                    case "set":
+                        return () -> {
+                            for (int i : outros) {
+                                a.set(i);
+                            }
+                            return a.palavras[0];
+                        };
+                    case "get":
+                        return () -> {
+                            long ligados = 0;
+                            for (int i : outros) {
+                                ligados += a.get(i) ? 1 : 0;
+                            }
+                            return ligados;
+                        };
+                    case "iterar":
+                        return () -> {
+                            long soma = 0;
+                            for (long i = a.proximoSetado(0); i >= 0; i = a.proximoSetado(i + 1)) {
+                                soma += i;
+                            }
+                            return soma;
+                        };
+                    case "xor":
+                        // XOR duas vezes volta ao original, então a densidade não muda entre execuções
+                        return () -> {
+                            a.xor(b);
+                            return a.palavras[0];
+                        };
+                    case "contar":
+                        return a::cardinalidade;
+                    default:
+                        break;
+                }
+                break;
+            }
+            case "bitset": {
+                BitSet a = new BitSet(bits);
+                BitSet b = new BitSet(bits);
+                for (int i : indices) {
+                    a.set(i);
+                }
+                for (int i : outros) {
+                    b.set(i);
+                }
+                switch (operacao) {
+                    case "set":
+                        return () -> {
+                            for (int i : outros) {
+                                a.set(i);
+                            }
+                            return a.length();
+                        };
+                    case "get":
+                        return () -> {
+                            long ligados = 0;
+                            for (int i : outros) {
+                                ligados += a.get(i) ? 1 : 0;
+                            }
+                            return ligados;
+                        };
+                    case "iterar":
+                        return () -> {
+                            long soma = 0;
+                            for (int i = a.nextSetBit(0); i >= 0; i = a.nextSetBit(i + 1)) {
+                                soma += i;
+                            }
+                            return soma;
+                        };
+                    case "xor":
+                        return () -> {
+                            a.xor(b);
+                            return a.length();
+                        };
+                    case "contar":
+                        return a::cardinality;
+                    default:
+                        break;
+                }
+                break;
+            }
+            case "booleanos": {
+                boolean[] a = new boolean[bits];
+                boolean[] b = new boolean[bits];
+                for (int i : indices) {
+                    a[i] = true;
+                }
+                for (int i : outros) {
+                    b[i] = true;
+                }
+                switch (operacao) {
+                    case "set":
+                        return () -> {
+                            for (int i : outros) {
+                                a[i] = true;
+                            }
+                            return a[0] ? 1 : 0;
+                        };
+                    case "get":
+                        return () -> {
+                            long ligados = 0;
+                            for (int i : outros) {
+                                ligados += a[i] ? 1 : 0;
+                            }
+                            return ligados;
+                        };
+                    case "iterar":
+                        return () -> {
+                            long soma = 0;
+                            for (int i = 0; i < a.length; i++) {
+                                if (a[i]) {
+                                    soma += i;
+                                }
+                            }
+                            return soma;
+                        };
+                    case "xor":
+                        return () -> {
+                            for (int i = 0; i < a.length; i++) {
+                                a[i] ^= b[i];
+                            }
+                            return a[0] ? 1 : 0;
+                        };
+                    case "contar":
+                        return () -> {
+                            long total = 0;
+                            for (boolean v : a) {
+                                total += v ? 1 : 0;
+                            }
+                            return total;
+                        };
+                    default:
+                        break;
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Estrutura desconhecida: " + estrutura);
+        }
+        throw new IllegalArgumentException("Operação desconhecida: " + operacao);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int bits = (args.length > 0 ? Integer.parseInt(args[0]) : 64) * 1_000_000;
+
+        System.out.printf("%d milhões de bits (1/8 ligados); set e get em %d posições aleatórias\n",
+                          bits / 1_000_000, bits / 8);
+        System.out.printf("Memória: mapa e BitSet %d KB, boolean[] %d KB\n", bits / 8 / 1024, bits / 1024);
+        System.out.println("-------------------------------------------------------------------------");
+        System.out.printf("%-10s |", "Operação");
+        for (String estrutura : ESTRUTURAS) {
+            System.out.printf(" %12s |", estrutura);
+        }
+        System.out.println(" (ms por operação)");
+
+        for (String operacao : OPERACOES) {
+            System.out.printf("%-10s |", operacao);
+            for (String estrutura : ESTRUTURAS) {
+                Medicao.Tarefa tarefa = criarTarefa(estrutura, operacao, bits, 42);
+                double ms = Medicao.minimo(Medicao.medir(3, 5, tarefa)) / 1_000_000.0;
+                System.out.printf(" %12.2f |", ms);
+            }
+            System.out.println();
+        }
+
+        // Verificação rápida das operações de intervalo e de iteração
+        MapaDeBits m = new MapaDeBits(200);
+        m.setIntervalo(10, 130);
+        m.clearIntervalo(64, 70);
+        m.flip(199);
+        long contados = 0;
+        for (long i = m.proximoSetado(0); i >= 0; i = m.proximoSetado(i + 1)) {
+            contados++;
+        }
+        System.out.println("\nVerificação: " + (m.cardinalidade() == 115 && contados == 115 && m.get(199) && !m.get(64)
+                                                 ? "ok" : "FALHOU") + "\n");
+    }
+}
@@ -0,0 +1,266 @@
+/*
+
+Utilitário de medição compartilhado pelos experimentos.
+
+Medir uma única execução com System.nanoTime() dá números que variam muito de uma
+rodada para outra: o JIT pode ainda não ter compilado o método, o coletor de lixo pode
+rodar no meio da medição, o S.O. pode trocar a thread de núcleo, etc. Aqui seguimos a
+mesma receita do JMH:
+- Aquecimento: algumas execuções descartadas antes de medir.
+- Iterações: várias execuções medidas, das quais tiramos média e desvio padrão.
+- Forks: cada teste pode rodar em uma JVM nova (executarEmNovaJVM), para que o perfil
+  do JIT de um teste não contamine o seguinte.
+- Buraco negro: o resultado de cada execução é consumido, para que o compilador não
+  elimine o código medido.
+
+*/
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class Medicao {
+
+    // Variável somente para consumir o resultado e evitar que o compilador otimize o código
+    public static volatile long buracoNegro;
+
+    // Coletas de lixo e bytes alocados em cada iteração da última chamada a medir (ver MetricasGC)
+    public static MetricasGC.Trecho[] ultimasMetricas = new MetricasGC.Trecho[0];
+
+    /**
+     * Código a ser medido. Deve retornar um valor que dependa dos dados lidos.
+     */
+    public interface Tarefa {
+        long executar() throws Exception;
+    }
+
+    /**
+     * Código executado antes de cada execução medida, fora do tempo medido.
+     */
+    public interface Preparacao {
+        void executar() throws Exception;
+    }
+
+    /**
+     * Executa a tarefa algumas vezes para aquecer e depois mede cada uma das iterações.
+     * Retorna o tempo de cada iteração em nanossegundos; as coletas de lixo e a alocação
+     * de cada iteração ficam em ultimasMetricas.
+     */
+    public static long[] medir(int aquecimentos, int iteracoes, Preparacao preparacao, Tarefa tarefa)
+            throws Exception {
+        for (int i = 0; i < aquecimentos; i++) {
+            if (preparacao != null) {
+                preparacao.executar();
+            }
+            buracoNegro = tarefa.executar(); // Consome o resultado
+        }
+
+        long[] amostras = new long[iteracoes];
+        MetricasGC.Trecho[] metricas = new MetricasGC.Trecho[iteracoes];
+        MetricasGC.GravacaoJfr jfr = MetricasGC.GravacaoJfr.seAtivada();
+        for (int i = 0; i < iteracoes; i++) {
+            if (preparacao != null) {
+                preparacao.executar();
+            }
+            MetricasGC.Instantaneo antes = MetricasGC.agora();
+            long inicio = System.nanoTime();
+            buracoNegro = tarefa.executar(); // Consome o resultado
+            long fim = System.nanoTime();
+            metricas[i] = antes.ate(MetricasGC.agora());
+            amostras[i] = fim - inicio;
+        }
+        if (jfr != null) {
+            jfr.encerrar(metricas);
+        }
+        ultimasMetricas = metricas;
+        return amostras;
+    }
+
+    public static long[] medir(int aquecimentos, int iteracoes, Tarefa tarefa) throws Exception {
+        return medir(aquecimentos, iteracoes, null, tarefa);
+    }
+
+    public static double media(long[] amostras) {
+        double soma = 0;
+        for (long a : amostras) {
+            soma += a;
+        }
+        return soma / amostras.length;
+    }
+
+    public static double desvioPadrao(long[] amostras) {
+        if (amostras.length < 2) {
+            return 0;
+        }
+        double media = media(amostras);
+        double soma = 0;
+        for (long a : amostras) {
+            soma += (a - media) * (a - media);
+        }
+        return Math.sqrt(soma / (amostras.length - 1));
+    }
+
+    /**
+     * Metade da largura do intervalo de confiança da média (ex: 0.999 para 99,9%), pela
+     * distribuição t de Student com n - 1 graus de liberdade, como o scoreError do JMH.
+     * Retorna NaN com menos de duas amostras.
+     */
+    public static double erroDaMedia(long[] amostras, double confianca) {
+        int n = amostras.length;
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double t = quantilT(1 - (1 - confianca) / 2, n - 1);
+        return t * desvioPadrao(amostras) / Math.sqrt(n);
+    }
+
+    /**
+     * Valor t tal que P(T <= t) = p, para p em (0.5, 1), por bisseção sobre a acumulada.
+     */
+    static double quantilT(double p, int grausLiberdade) {
+        double baixo = 0, alto = 1;
+        while (acumuladaT(alto, grausLiberdade) < p) {
+            alto *= 2;
+        }
+        for (int i = 0; i < 200 && alto - baixo > 1e-12 * alto; i++) {
+            double meio = (baixo + alto) / 2;
+            if (acumuladaT(meio, grausLiberdade) < p) {
+                baixo = meio;
+            } else {
+                alto = meio;
+            }
+        }
+        return (baixo + alto) / 2;
+    }
+
+    // P(T <= t) para t >= 0: 1 - I_x(gl/2, 1/2) / 2, com x = gl / (gl + t²)
+    private static double acumuladaT(double t, int grausLiberdade) {
+        double x = grausLiberdade / (grausLiberdade + t * t);
+        return 1 - 0.5 * betaIncompleta(x, grausLiberdade / 2.0, 0.5);
+    }
+
+    // Função beta incompleta regularizada I_x(a, b), pela fração contínua (método de Lentz)
+    private static double betaIncompleta(double x, double a, double b) {
+        if (x <= 0) {
+            return 0;
+        }
+        if (x >= 1) {
+            return 1;
+        }
+        double frente = Math.exp(lnGama(a + b) - lnGama(a) - lnGama(b)
+                + a * Math.log(x) + b * Math.log(1 - x));
+        if (x < (a + 1) / (a + b + 2)) {
+            return frente * fracaoBeta(x, a, b) / a;
+        }
+        return 1 - frente * fracaoBeta(1 - x, b, a) / b;
+    }
+
+    private static double fracaoBeta(double x, double a, double b) {
+        final double minimo = 1e-300;
+        double c = 1;
+        double d = 1 - (a + b) * x / (a + 1);
+        d = 1 / (Math.abs(d) < minimo ? minimo : d);
+        double h = d;
+        for (int m = 1; m <= 300; m++) {
+            int m2 = 2 * m;
+            double coef = m * (b - m) * x / ((a + m2 - 1) * (a + m2));
+            d = 1 + coef * d;
+            d = 1 / (Math.abs(d) < minimo ? minimo : d);
+            c = 1 + coef / c;
+            c = Math.abs(c) < minimo ? minimo : c;
+            h *= d * c;
+            coef = -(a + m) * (a + b + m) * x / ((a + m2) * (a + m2 + 1));
+            d = 1 + coef * d;
+            d = 1 / (Math.abs(d) < minimo ? minimo : d);
+            c = 1 + coef / c;
+            c = Math.abs(c) < minimo ? minimo : c;
+            double delta = d * c;
+            h *= delta;
+            if (Math.abs(delta - 1) < 1e-15) {
+                break;
+            }
+        }
+        return h;
+    }
+
+    // ln(Γ(x)) pela aproximação de Lanczos
+    private static double lnGama(double x) {
+        final double[] coeficientes = {76.18009172947146, -86.50532032941677, 24.01409824083091,
+                -1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5};
+        double y = x;
+        double tmp = x + 5.5;
+        tmp -= (x + 0.5) * Math.log(tmp);
+        double serie = 1.000000000190015;
+        for (double c : coeficientes) {
+            serie += c / ++y;
+        }
+        return -tmp + Math.log(2.5066282746310005 * serie / x);
+    }
+
+    public static long minimo(long[] amostras) {
+        long min = Long.MAX_VALUE;
+        for (long a : amostras) {
+            min = Math.min(min, a);
+        }
+        return min;
+    }
+
+    /**
+     * Inicia uma nova JVM com o mesmo classpath e as mesmas opções da JVM atual
+     * (mais as opções extras, que têm precedência) e executa a classe indicada.
+     * Retorna as linhas impressas na saída padrão; a saída de erro é repassada.
+     */
+    public static List<String> executarEmNovaJVM(List<String> opcoesExtras, String classe,
+                                                 List<String> argumentos)
+            throws IOException, InterruptedException {
+        return executarEmNovaJVM(Collections.emptyList(), opcoesExtras, classe, argumentos);
+    }
+
+    /**
+     * Como o anterior, mas com um comando antes do java (ex: "numactl --membind=0"), que
+     * recebe a linha de comando da nova JVM como argumentos.
+     */
+    public static List<String> executarEmNovaJVM(List<String> prefixo, List<String> opcoesExtras,
+                                                 String classe, List<String> argumentos)
+            throws IOException, InterruptedException {
+        List<String> comando = new ArrayList<>(prefixo);
+        comando.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        comando.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        comando.addAll(opcoesExtras);
+        comando.add("-cp");
+        comando.add(System.getProperty("java.class.path"));
+        comando.add(classe);
+        comando.addAll(argumentos);
+        return executarComando(comando);
+    }
+
+    /**
+     * Executa um comando externo e retorna as linhas impressas na saída padrão.
+     */
+    public static List<String> executarComando(List<String> comando)
+            throws IOException, InterruptedException {
+        Process processo = new ProcessBuilder(comando)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+        List<String> linhas = new ArrayList<>();
+        try (BufferedReader leitor = new BufferedReader(
+                new InputStreamReader(processo.getInputStream()))) {
+            String linha;
+            while ((linha = leitor.readLine()) != null) {
+                linhas.add(linha);
+            }
+        }
+
+        int codigo = processo.waitFor();
+        if (codigo != 0) {
+            throw new IOException("O processo terminou com código " + codigo + ": " + comando);
+        }
+        return linhas;
+    }
+}
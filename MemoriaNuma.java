@@ -0,0 +1,147 @@
+/*
+
+Experimento: Memória Local x Remota em Máquinas NUMA
+
+Em um servidor com dois ou mais processadores (sockets), cada processador tem a sua
+própria memória. Ele também lê a memória do outro, mas passando pela ligação entre os
+sockets, com mais latência e menos largura de banda. Isso é o NUMA (Non-Uniform Memory
+Access): cada conjunto processador + memória é um "nó".
+
+Nenhum experimento controla onde a memória fica: o array de 512 MB do CacheTamanhoLinha
+ou a matriz do CacheLocalidadeEspacial podem cair no nó remoto. O Java não permite
+escolher o nó de uma alocação nem fixar uma thread em um núcleo, então lançamos cada
+configuração em uma JVM nova, por meio do numactl:
+- LOCAL:       threads e memória no mesmo nó (--cpunodebind=0 --membind=0);
+- REMOTO:      threads no nó 0 e memória no nó 1 (--cpunodebind=0 --membind=1);
+- INTERCALADO: threads no nó 0 e páginas alternadas entre todos os nós (--interleave=all).
+E, sem numactl, a JVM com -XX:-UseNUMA e com -XX:+UseNUMA (em que o coletor de lixo
+aloca os objetos novos de cada thread no nó em que ela está rodando).
+
+Em cada JVM medimos a largura de banda (soma sequencial de um int[]) e a latência
+(perseguição de ponteiros, ver PerseguicaoPonteiros) sobre o mesmo tamanho de dados.
+Em máquinas com um só nó, ou sem o numactl, só as configurações possíveis são medidas.
+
+Uso: java -cp bin MemoriaNuma [tamanhoMB]
+
+*/
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class MemoriaNuma {
+
+    private static final long PASSOS_LATENCIA = 10_000_000;
+
+    /**
+     * Quantos nós NUMA o kernel enxerga (pastas /sys/devices/system/node/nodeN).
+     */
+    static int contarNos() {
+        File[] nos = new File("/sys/devices/system/node").listFiles((d, nome) -> nome.matches("node\\d+"));
+        return nos == null || nos.length == 0 ? 1 : nos.length;
+    }
+
+    static boolean numactlDisponivel() {
+        try {
+            Medicao.executarComando(Arrays.asList("numactl", "--show"));
+            return true;
+        } catch (IOException | InterruptedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Executado na JVM filha: imprime "banda GB/s" e "latencia ns".
+     */
+    static void medirNestaJVM(long tamanho) throws Exception {
+        int[] dados = CacheTamanhoLinha.criarDados((int) (tamanho / Integer.BYTES));
+        long[] amostras = Medicao.medir(3, 5, () -> KernelsSoma.somarInts(dados));
+        System.out.println("banda " + (double) tamanho / Medicao.minimo(amostras));
+
+        int[] proximo = PerseguicaoPonteiros.criarCiclo(tamanho, 42);
+        PerseguicaoPonteiros.perseguir(proximo, proximo.length / 16); // Aquecimento
+        amostras = Medicao.medir(1, 3, () -> PerseguicaoPonteiros.perseguir(proximo, PASSOS_LATENCIA));
+        System.out.println("latencia " + (double) Medicao.minimo(amostras) / PASSOS_LATENCIA);
+    }
+
+    static class Configuracao {
+        final String nome;
+        final List<String> prefixo;
+        final List<String> opcoes;
+
+        Configuracao(String nome, List<String> prefixo, List<String> opcoes) {
+            this.nome = nome;
+            this.prefixo = prefixo;
+            this.opcoes = opcoes;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int tamanhoMB = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        long tamanho = tamanhoMB * 1024L * 1024L;
+
+        // Modo usado quando uma configuração é executada em uma nova JVM
+        if (args.length > 1 && args[1].equals("--filho")) {
+            medirNestaJVM(tamanho);
+            return;
+        }
+
+        int nos = contarNos();
+        boolean numactl = numactlDisponivel();
+        System.out.printf("Memória local x remota com %d MB: %d nó(s) NUMA, numactl %s\n",
+                          tamanhoMB, nos, numactl ? "encontrado" : "não encontrado");
+        System.out.println("-------------------------------------------------------------------------");
+
+        List<Configuracao> configuracoes = new ArrayList<>();
+        List<String> nenhum = Collections.emptyList();
+        if (numactl) {
+            configuracoes.add(new Configuracao("LOCAL (cpu 0, mem 0)",
+                    Arrays.asList("numactl", "--cpunodebind=0", "--membind=0"), nenhum));
+            if (nos > 1) {
+                configuracoes.add(new Configuracao("REMOTO (cpu 0, mem 1)",
+                        Arrays.asList("numactl", "--cpunodebind=0", "--membind=1"), nenhum));
+                configuracoes.add(new Configuracao("INTERCALADO (cpu 0)",
+                        Arrays.asList("numactl", "--cpunodebind=0", "--interleave=all"), nenhum));
+            }
+        }
+        configuracoes.add(new Configuracao("-XX:-UseNUMA", nenhum, List.of("-XX:-UseNUMA")));
+        configuracoes.add(new Configuracao("-XX:+UseNUMA", nenhum, List.of("-XX:+UseNUMA")));
+
+        System.out.printf("%-24s | %10s | %12s |\n", "Configuração", "GB/s", "ns/leitura");
+        double bandaLocal = 0, latenciaLocal = 0;
+        for (Configuracao c : configuracoes) {
+            List<String> opcoes = new ArrayList<>(c.opcoes);
+            opcoes.add("-Xmx" + (2 * tamanhoMB + 256) + "m");
+            double banda = 0, latencia = 0;
+            try {
+                for (String linha : Medicao.executarEmNovaJVM(c.prefixo, opcoes, "MemoriaNuma",
+                                                              List.of(String.valueOf(tamanhoMB), "--filho"))) {
+                    String[] campos = linha.split(" ");
+                    if (campos[0].equals("banda")) {
+                        banda = Double.parseDouble(campos[1]);
+                    } else if (campos[0].equals("latencia")) {
+                        latencia = Double.parseDouble(campos[1]);
+                    }
+                }
+            } catch (IOException e) {
+                System.out.printf("%-24s | falhou: %s\n", c.nome, e.getMessage());
+                continue;
+            }
+            if (bandaLocal == 0) {
+                bandaLocal = banda;
+                latenciaLocal = latencia;
+            }
+            System.out.printf("%-24s | %10.2f | %12.2f | %.2fx banda, %.2fx latência\n",
+                              c.nome, banda, latencia, banda / bandaLocal, latencia / latenciaLocal);
+        }
+
+        if (nos < 2 || !numactl) {
+            System.out.println("\nREMOTO e INTERCALADO indisponíveis: "
+                               + (nos < 2 ? "esta máquina tem um só nó NUMA." : "instale o numactl."));
+        }
+        System.out.println();
+    }
+}
@@ -0,0 +1,213 @@
+/*
+
+Métricas de coleta de lixo (GC) e de alocação em volta de um trecho medido.
+
+Vários experimentos alocam muito: o CacheTamanhoLinha cria um int[] de 512 MB, o RAMvsDisco
+outro byte[] de 512 MB com Files.readAllBytes e a matriz do CacheLocalidadeEspacial tem
+10.000 arrays de linha. Se o coletor de lixo rodar no meio de uma medição, o tempo da
+coleta entra no tempo medido e o resultado fica "contaminado", sem que nada no relatório
+indique isso.
+
+Aqui tiramos um instantâneo antes e outro depois do trecho:
+- GarbageCollectorMXBean: número de coletas e tempo total gasto nelas, somando todos os
+  coletores (jovem e velho);
+- com.sun.management.ThreadMXBean: bytes alocados pela thread atual (só ela: tarefas
+  que usam outras threads, como o ForkJoinPool, alocam fora desta conta).
+Um trecho com pelo menos uma coleta é marcado como contaminado.
+
+Opcionalmente, com -Dgc.jfr=arquivo.jfr, o Medicao.medir grava um registro do JDK Flight
+Recorder (JFR) com os eventos de coleta e de alocação. As pausas de cada coleta
+(jdk.GarbageCollection, campo sumOfPauses) são atribuídas às iterações em que começaram,
+e o arquivo fica para ser aberto no JDK Mission Control.
+
+*/
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class MetricasGC {
+
+    private static final List<GarbageCollectorMXBean> COLETORES = ManagementFactory.getGarbageCollectorMXBeans();
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    // Bytes que o próprio instantâneo aloca (Instant, iteradores do MXBean...), descontados
+    // de cada trecho
+    private static final long CUSTO_INSTANTANEO = medirCusto();
+
+    /**
+     * Contadores acumulados desde o início da JVM, em um dado momento.
+     */
+    public static class Instantaneo {
+        final long coletas;
+        final long msColeta;
+        final long bytesAlocados;
+        final Instant momento;
+
+        Instantaneo(long coletas, long msColeta, long bytesAlocados, Instant momento) {
+            this.coletas = coletas;
+            this.msColeta = msColeta;
+            this.bytesAlocados = bytesAlocados;
+            this.momento = momento;
+        }
+
+        /**
+         * Diferença entre este instantâneo e um posterior.
+         */
+        public Trecho ate(Instantaneo depois) {
+            return new Trecho(depois.coletas - coletas, depois.msColeta - msColeta,
+                              Math.max(0, depois.bytesAlocados - bytesAlocados - CUSTO_INSTANTANEO),
+                              momento, depois.momento);
+        }
+    }
+
+    /**
+     * O que aconteceu entre dois instantâneos.
+     */
+    public static class Trecho {
+        public final long coletas;
+        public final long msColeta;
+        public final long bytesAlocados;
+        final Instant inicio;
+        final Instant fim;
+        // Soma das pausas vistas pelo JFR, ou -1 se o JFR não estava gravando
+        long nanosPausaJfr = -1;
+
+        Trecho(long coletas, long msColeta, long bytesAlocados, Instant inicio, Instant fim) {
+            this.coletas = coletas;
+            this.msColeta = msColeta;
+            this.bytesAlocados = bytesAlocados;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        public boolean contaminado() {
+            return coletas > 0 || nanosPausaJfr > 0;
+        }
+
+        public long nanosPausaJfr() {
+            return nanosPausaJfr;
+        }
+
+        public String resumo() {
+            return String.format("GC: %d coleta(s), %d ms | alocados: %s%s%s", coletas, msColeta,
+                                 bytes(bytesAlocados),
+                                 nanosPausaJfr < 0 ? "" : String.format(" | pausas (JFR): %.2f ms", nanosPausaJfr / 1e6),
+                                 contaminado() ? "  <- CONTAMINADO por coleta" : "");
+        }
+    }
+
+    static String bytes(long b) {
+        if (b >= 1024L * 1024) {
+            return String.format("%.1f MB", b / (1024.0 * 1024));
+        }
+        return b >= 1024 ? String.format("%.1f KB", b / 1024.0) : b + " B";
+    }
+
+    private static long medirCusto() {
+        long custo = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            Instantaneo antes = agora();
+            custo = Math.min(custo, agora().bytesAlocados - antes.bytesAlocados);
+        }
+        return custo;
+    }
+
+    public static Instantaneo agora() {
+        long coletas = 0;
+        long ms = 0;
+        for (GarbageCollectorMXBean coletor : COLETORES) {
+            // -1 quando o coletor não informa
+            coletas += Math.max(0, coletor.getCollectionCount());
+            ms += Math.max(0, coletor.getCollectionTime());
+        }
+        return new Instantaneo(coletas, ms, THREADS.getCurrentThreadAllocatedBytes(), Instant.now());
+    }
+
+    /**
+     * Soma de vários trechos (ex: todas as iterações de uma medição).
+     */
+    public static Trecho somar(Trecho[] trechos) {
+        long coletas = 0, ms = 0, bytes = 0, pausas = -1;
+        for (Trecho t : trechos) {
+            coletas += t.coletas;
+            ms += t.msColeta;
+            bytes += t.bytesAlocados;
+            if (t.nanosPausaJfr >= 0) {
+                pausas = Math.max(0, pausas) + t.nanosPausaJfr;
+            }
+        }
+        Trecho soma = new Trecho(coletas, ms, bytes, trechos.length > 0 ? trechos[0].inicio : Instant.now(),
+                                 trechos.length > 0 ? trechos[trechos.length - 1].fim : Instant.now());
+        soma.nanosPausaJfr = pausas;
+        return soma;
+    }
+
+    public static int contaminados(Trecho[] trechos) {
+        int n = 0;
+        for (Trecho t : trechos) {
+            if (t.contaminado()) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Gravação JFR com os eventos de coleta e de alocação, ativada por -Dgc.jfr=arquivo.jfr.
+     */
+    public static class GravacaoJfr {
+        private final Recording gravacao = new Recording();
+        private final Path arquivo;
+
+        private GravacaoJfr(Path arquivo) {
+            this.arquivo = arquivo;
+            gravacao.enable("jdk.GarbageCollection").withThreshold(Duration.ZERO);
+            gravacao.enable("jdk.GCPhasePause").withThreshold(Duration.ZERO);
+            gravacao.enable("jdk.ObjectAllocationSample");
+            gravacao.setToDisk(true);
+            gravacao.start();
+        }
+
+        /**
+         * Inicia uma gravação se a propriedade gc.jfr foi informada; senão retorna null.
+         */
+        public static GravacaoJfr seAtivada() {
+            String arquivo = System.getProperty("gc.jfr");
+            return arquivo == null ? null : new GravacaoJfr(Paths.get(arquivo));
+        }
+
+        /**
+         * Encerra a gravação, grava o arquivo e soma as pausas de cada coleta ao trecho em
+         * que ela começou.
+         */
+        public void encerrar(Trecho[] trechos) throws IOException {
+            gravacao.stop();
+            gravacao.dump(arquivo);
+            gravacao.close();
+            for (Trecho t : trechos) {
+                t.nanosPausaJfr = 0;
+            }
+            for (RecordedEvent evento : RecordingFile.readAllEvents(arquivo)) {
+                if (!evento.getEventType().getName().equals("jdk.GarbageCollection")) {
+                    continue;
+                }
+                Instant inicio = evento.getStartTime();
+                for (Trecho t : trechos) {
+                    if (!inicio.isBefore(t.inicio) && !inicio.isAfter(t.fim)) {
+                        t.nanosPausaJfr += evento.getDuration("sumOfPauses").toNanos();
+                    }
+                }
+            }
+        }
+    }
+}
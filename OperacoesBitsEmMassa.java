@@ -0,0 +1,556 @@
+/*
+
+Experimento: Operações Bitwise em Massa (Byte a Byte, SWAR e Vector API)
+
+Todas as operações do BitwiseOperatorsExample_L6 (AND, OR, XOR, NOT, deslocamentos e
+complemento de 2) trabalham com UM byte por vez. Aplicadas a um buffer de centenas de
+megabytes, isso significa uma instrução (ou mais) por byte. Aqui aplicamos as mesmas
+operações, byte a byte, a arrays inteiros de três formas:
+
+- BYTE:  um laço que faz exatamente o que o L6 faz, um byte de cada vez.
+- LONG:  SWAR (SIMD Within A Register): lemos 8 bytes de uma vez como um long (VarHandle
+         byteArrayViewVarHandle) e operamos nos 8 ao mesmo tempo. AND/OR/XOR/NOT não
+         misturam bits de bytes vizinhos, então funcionam direto. Deslocamentos e o
+         complemento de 2 precisam de máscaras para que um bit (ou o "vai um" da soma)
+         não passe de um byte para o vizinho.
+- VETOR: a Vector API opera em um registrador SIMD inteiro (32 ou 64 bytes) por instrução.
+         Só existe com --add-modules jdk.incubator.vector (ver KernelsSoma).
+
+Os dados podem estar no heap (byte[]) ou fora dele (ByteBuffer direto). Para entradas
+grandes o trabalho é dividido em faixas contíguas, uma por thread (aplicarParalelo).
+
+O relatório mostra GB/s (bytes de entrada por segundo) por estratégia e operação. Dois
+cuidados na leitura:
+- Cada estratégia escolhe a operação uma vez, antes do laço, e cada operação tem o seu
+  próprio laço (sem switch por elemento), para que o tempo medido seja só o da operação.
+  Laços simples como o BYTE com AND são vetorizados automaticamente pelo C2 (SuperWord)
+  e ficam tão rápidos quanto o VETOR; o laço LONG, com VarHandle, não é. Cada operação
+  ainda é medida em uma JVM nova, para que o heap e o JIT de uma não afetem a seguinte.
+- Com buffers bem maiores que a cache (o padrão, 256 MB) as estratégias rápidas ficam
+  limitadas pela banda da memória (três fluxos: dois lidos e um escrito), e mais threads
+  só ajudam enquanto uma thread não satura essa banda. Com tamanhoMB = 1 os dados cabem
+  na L2/L3 e aparece a diferença de processamento entre as estratégias.
+
+Uso: java --add-modules jdk.incubator.vector -cp bin OperacoesBitsEmMassa [tamanhoMB] [threads]
+
+*/
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class OperacoesBitsEmMassa {
+
+    public static final String[] OPERACOES = {"and", "or", "xor", "not", "shl", "shr", "negacao"};
+    public static final String[] ESTRATEGIAS = {"byte", "long", "vetor"};
+    public static final String[] ARMAZENAMENTOS = {"heap", "direto"};
+
+    static final int AND = 0, OR = 1, XOR = 2, NOT = 3, SHL = 4, SHR = 5, NEGACAO = 6;
+
+    // A ordem dos bytes não importa: cada byte é lido e escrito na mesma posição
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final long UNS = 0x0101010101010101L;         // 0x01 em cada byte
+    private static final long ALTOS = 0x8080808080808080L;       // bit 7 de cada byte
+    private static final long BAIXOS = 0x7F7F7F7F7F7F7F7FL;      // bits 0 a 6 de cada byte
+
+    // Faixas menores que isso não compensam o custo de dividir entre threads
+    private static final int MINIMO_POR_THREAD = 1 << 20;
+
+    /**
+     * 'tamanhoMB' em bytes, calculado em long; tamanhos que não cabem em um array (2 GB ou
+     * mais) são rejeitados.
+     */
+    public static int tamanhoEmBytes(int tamanhoMB) {
+        long bytes = tamanhoMB * 1024L * 1024L;
+        if (tamanhoMB < 1 || bytes > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("tamanhoMB deve ficar entre 1 e 2047: " + tamanhoMB);
+        }
+        return (int) bytes;
+    }
+
+    static int codigo(String operacao) {
+        for (int i = 0; i < OPERACOES.length; i++) {
+            if (OPERACOES[i].equals(operacao)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Operação desconhecida: " + operacao);
+    }
+
+    /**
+     * A operação do L6 sobre um byte, usada como referência pelo verificar(). 'b' só é
+     * usado por AND/OR/XOR e 'n' pelos deslocamentos.
+     */
+    static byte operarByte(int op, byte a, byte b, int n) {
+        switch (op) {
+            case AND:
+                return (byte) (a & b);
+            case OR:
+                return (byte) (a | b);
+            case XOR:
+                return (byte) (a ^ b);
+            case NOT:
+                return (byte) ~a;
+            case SHL:
+                return (byte) (a << n);
+            case SHR:
+                return (byte) (a >> n);
+            default:
+                return BitwiseOperatorsExample_L6.twosComplement(a);
+        }
+    }
+
+    private static void validar(int op, int n) {
+        if ((op == SHL || op == SHR) && (n < 0 || n > 7)) {
+            throw new IllegalArgumentException("Deslocamento deve estar entre 0 e 7: " + n);
+        }
+    }
+
+    // As estratégias abaixo escolhem a operação UMA vez, antes do laço, e cada operação tem
+    // o seu próprio laço: um switch dentro do laço seria executado a cada elemento e mediria
+    // o despacho junto com a operação.
+
+    /**
+     * BYTE: destino[i] = a[i] op b[i], um byte de cada vez, para i em [de, ate).
+     */
+    static void aplicarByte(int op, byte[] a, byte[] b, byte[] destino, int n, int de, int ate) {
+        switch (op) {
+            case AND:
+                for (int i = de; i < ate; i++) {
+                    destino[i] = (byte) (a[i] & b[i]);
+                }
+                break;
+            case OR:
+                for (int i = de; i < ate; i++) {
+                    destino[i] = (byte) (a[i] | b[i]);
+                }
+                break;
+            case XOR:
+                for (int i = de; i < ate; i++) {
+                    destino[i] = (byte) (a[i] ^ b[i]);
+                }
+                break;
+            case NOT:
+                for (int i = de; i < ate; i++) {
+                    destino[i] = (byte) ~a[i];
+                }
+                break;
+            case SHL:
+                for (int i = de; i < ate; i++) {
+                    destino[i] = (byte) (a[i] << n);
+                }
+                break;
+            case SHR:
+                for (int i = de; i < ate; i++) {
+                    destino[i] = (byte) (a[i] >> n);
+                }
+                break;
+            default:
+                for (int i = de; i < ate; i++) {
+                    destino[i] = BitwiseOperatorsExample_L6.twosComplement(a[i]);
+                }
+        }
+    }
+
+    static void aplicarByte(int op, ByteBuffer a, ByteBuffer b, ByteBuffer destino, int n, int de, int ate) {
+        switch (op) {
+            case AND:
+                for (int i = de; i < ate; i++) {
+                    destino.put(i, (byte) (a.get(i) & b.get(i)));
+                }
+                break;
+            case OR:
+                for (int i = de; i < ate; i++) {
+                    destino.put(i, (byte) (a.get(i) | b.get(i)));
+                }
+                break;
+            case XOR:
+                for (int i = de; i < ate; i++) {
+                    destino.put(i, (byte) (a.get(i) ^ b.get(i)));
+                }
+                break;
+            case NOT:
+                for (int i = de; i < ate; i++) {
+                    destino.put(i, (byte) ~a.get(i));
+                }
+                break;
+            case SHL:
+                for (int i = de; i < ate; i++) {
+                    destino.put(i, (byte) (a.get(i) << n));
+                }
+                break;
+            case SHR:
+                for (int i = de; i < ate; i++) {
+                    destino.put(i, (byte) (a.get(i) >> n));
+                }
+                break;
+            default:
+                for (int i = de; i < ate; i++) {
+                    destino.put(i, BitwiseOperatorsExample_L6.twosComplement(a.get(i)));
+                }
+        }
+    }
+
+    /**
+     * LONG (SWAR): a mesma operação em cada um dos 8 bytes de um long; a sobra que não
+     * completa um long vai para o aplicarByte.
+     */
+    static void aplicarLong(int op, byte[] a, byte[] b, byte[] destino, int n, int de, int ate) {
+        int fim = de + ((ate - de) & -Long.BYTES);
+        switch (op) {
+            case AND:
+                for (int i = de; i < fim; i += Long.BYTES) {
+                    LONGS.set(destino, i, (long) LONGS.get(a, i) & (long) LONGS.get(b, i));
+                }
+                break;
+            case OR:
+                for (int i = de; i < fim; i += Long.BYTES) {
+                    LONGS.set(destino, i, (long) LONGS.get(a, i) | (long) LONGS.get(b, i));
+                }
+                break;
+            case XOR:
+                for (int i = de; i < fim; i += Long.BYTES) {
+                    LONGS.set(destino, i, (long) LONGS.get(a, i) ^ (long) LONGS.get(b, i));
+                }
+                break;
+            case NOT:
+                for (int i = de; i < fim; i += Long.BYTES) {
+                    LONGS.set(destino, i, ~(long) LONGS.get(a, i));
+                }
+                break;
+            case SHL: {
+                // Os bits que sairiam de um byte para o vizinho são descartados pela máscara
+                long mascara = UNS * ((0xFF << n) & 0xFF);
+                for (int i = de; i < fim; i += Long.BYTES) {
+                    LONGS.set(destino, i, ((long) LONGS.get(a, i) << n) & mascara);
+                }
+                break;
+            }
+            case SHR: {
+                // Deslocamento lógico dentro de cada byte, depois replica o bit de sinal
+                // nos n bits de cima dos bytes negativos, como o >> de um byte faz
+                long manter = UNS * (0xFF >>> n);
+                for (int i = de; i < fim; i += Long.BYTES) {
+                    long x = (long) LONGS.get(a, i);
+                    long negativos = ((x & ALTOS) >>> 7) * 0xFF;
+                    LONGS.set(destino, i, ((x >>> n) & manter) | (negativos & ~manter));
+                }
+                break;
+            }
+            default:
+                // ~a + 1 em cada byte: soma os 7 bits de baixo (o "vai um" no máximo chega
+                // ao bit 7 do próprio byte) e corrige o bit 7 com XOR
+                for (int i = de; i < fim; i += Long.BYTES) {
+                    long invertido = ~(long) LONGS.get(a, i);
+                    LONGS.set(destino, i, ((invertido & BAIXOS) + UNS) ^ (invertido & ALTOS));
+                }
+        }
+        aplicarByte(op, a, b, destino, n, fim, ate);
+    }
+
+    static void aplicarLong(int op, ByteBuffer a, ByteBuffer b, ByteBuffer destino, int n, int de, int ate) {
+        int fim = de + ((ate - de) & -Long.BYTES);
+        switch (op) {
+            case AND:
+                for (int i = de; i < fim; i += Long.BYTES) {
+                    destino.putLong(i, a.getLong(i) & b.getLong(i));
+                }
+                break;
+            case OR:
+                for (int i = de; i < fim; i += Long.BYTES) {
+                    destino.putLong(i, a.getLong(i) | b.getLong(i));
+                }
+                break;
+            case XOR:
+                for (int i = de; i < fim; i += Long.BYTES) {
+                    destino.putLong(i, a.getLong(i) ^ b.getLong(i));
+                }
+                break;
+            case NOT:
+                for (int i = de; i < fim; i += Long.BYTES) {
+                    destino.putLong(i, ~a.getLong(i));
+                }
+                break;
+            case SHL: {
+                long mascara = UNS * ((0xFF << n) & 0xFF);
+                for (int i = de; i < fim; i += Long.BYTES) {
+                    destino.putLong(i, (a.getLong(i) << n) & mascara);
+                }
+                break;
+            }
+            case SHR: {
+                long manter = UNS * (0xFF >>> n);
+                for (int i = de; i < fim; i += Long.BYTES) {
+                    long x = a.getLong(i);
+                    long negativos = ((x & ALTOS) >>> 7) * 0xFF;
+                    destino.putLong(i, ((x >>> n) & manter) | (negativos & ~manter));
+                }
+                break;
+            }
+            default:
+                for (int i = de; i < fim; i += Long.BYTES) {
+                    long invertido = ~a.getLong(i);
+                    destino.putLong(i, ((invertido & BAIXOS) + UNS) ^ (invertido & ALTOS));
+                }
+        }
+        aplicarByte(op, a, b, destino, n, fim, ate);
+    }
+
+    private static void exigirVetorial() {
+        if (!KernelsSoma.VETORIAL_DISPONIVEL) {
+            throw new IllegalStateException("Vector API indisponível; use --add-modules jdk.incubator.vector");
+        }
+    }
+
+    /**
+     * destino[i] = a[i] op b[i] para i em [de, ate), com a estratégia indicada.
+     * 'b' pode ser null nas operações de um operando.
+     */
+    public static void aplicar(String operacao, String estrategia, byte[] a, byte[] b, byte[] destino,
+                               int n, int de, int ate) {
+        int op = codigo(operacao);
+        validar(op, n);
+        byte[] outro = b != null ? b : a;
+        switch (estrategia) {
+            case "byte":
+                aplicarByte(op, a, outro, destino, n, de, ate);
+                break;
+            case "long":
+                aplicarLong(op, a, outro, destino, n, de, ate);
+                break;
+            case "vetor":
+                exigirVetorial();
+                BitsVetoriais.aplicar(op, a, outro, destino, n, de, ate);
+                break;
+            default:
+                throw new IllegalArgumentException("Estratégia desconhecida: " + estrategia);
+        }
+    }
+
+    /**
+     * O mesmo, para buffers diretos (fora do heap). As posições são absolutas.
+     */
+    public static void aplicar(String operacao, String estrategia, ByteBuffer a, ByteBuffer b, ByteBuffer destino,
+                               int n, int de, int ate) {
+        int op = codigo(operacao);
+        validar(op, n);
+        ByteBuffer outro = b != null ? b : a;
+        switch (estrategia) {
+            case "byte":
+                aplicarByte(op, a, outro, destino, n, de, ate);
+                break;
+            case "long":
+                aplicarLong(op, a, outro, destino, n, de, ate);
+                break;
+            case "vetor":
+                exigirVetorial();
+                BitsVetoriais.aplicar(op, a, outro, destino, n, de, ate);
+                break;
+            default:
+                throw new IllegalArgumentException("Estratégia desconhecida: " + estrategia);
+        }
+    }
+
+    /**
+     * Divide [0, tamanho) em até pool.getParallelism() faixas contíguas (múltiplas de 64
+     * bytes, para que duas threads não escrevam na mesma linha de cache) e executa
+     * 'faixa' para cada uma no pool.
+     */
+    static void dividir(int tamanho, ForkJoinPool pool, Faixa faixa) throws Exception {
+        int partes = Math.max(1, Math.min(pool.getParallelism(), tamanho / MINIMO_POR_THREAD));
+        if (partes == 1) {
+            faixa.executar(0, tamanho);
+            return;
+        }
+        int tamanhoParte = ((tamanho / partes) + 63) & ~63;
+        List<Callable<Void>> tarefas = new ArrayList<>();
+        for (int de = 0; de < tamanho; de += tamanhoParte) {
+            int inicio = de;
+            int fim = Math.min(tamanho, de + tamanhoParte);
+            tarefas.add(() -> {
+                faixa.executar(inicio, fim);
+                return null;
+            });
+        }
+        for (Future<Void> resultado : pool.invokeAll(tarefas)) {
+            resultado.get(); // repassa exceções das threads
+        }
+    }
+
+    interface Faixa {
+        void executar(int de, int ate);
+    }
+
+    public static void aplicarParalelo(String operacao, String estrategia, byte[] a, byte[] b, byte[] destino,
+                                       int n, ForkJoinPool pool) throws Exception {
+        dividir(destino.length, pool, (de, ate) -> aplicar(operacao, estrategia, a, b, destino, n, de, ate));
+    }
+
+    public static void aplicarParalelo(String operacao, String estrategia, ByteBuffer a, ByteBuffer b,
+                                       ByteBuffer destino, int n, ForkJoinPool pool) throws Exception {
+        dividir(destino.capacity(), pool, (de, ate) -> aplicar(operacao, estrategia, a, b, destino, n, de, ate));
+    }
+
+    /**
+     * Confere as três estratégias, no heap e fora dele, contra o operarByte em todos os
+     * valores de byte e deslocamentos, com um tamanho que não é múltiplo de 8 (para testar
+     * a sobra).
+     */
+    static boolean verificar() {
+        int tamanho = 256 * 256 + 13;
+        byte[] a = new byte[tamanho];
+        byte[] b = new byte[tamanho];
+        for (int i = 0; i < tamanho; i++) {
+            a[i] = (byte) i;
+            b[i] = (byte) (i >>> 8);
+        }
+        ByteBuffer aDireto = ByteBuffer.allocateDirect(tamanho).put(a);
+        ByteBuffer bDireto = ByteBuffer.allocateDirect(tamanho).put(b);
+        ByteBuffer destinoDireto = ByteBuffer.allocateDirect(tamanho);
+        for (String operacao : OPERACOES) {
+            int op = codigo(operacao);
+            for (int n = 0; n < 8; n++) {
+                byte[] esperado = new byte[tamanho];
+                for (int i = 0; i < tamanho; i++) {
+                    esperado[i] = operarByte(op, a[i], b[i], n);
+                }
+                for (String estrategia : ESTRATEGIAS) {
+                    if (estrategia.equals("vetor") && !KernelsSoma.VETORIAL_DISPONIVEL) {
+                        continue;
+                    }
+                    byte[] obtido = new byte[tamanho];
+                    aplicar(operacao, estrategia, a, b, obtido, n, 0, tamanho);
+                    byte[] obtidoDireto = new byte[tamanho];
+                    aplicar(operacao, estrategia, aDireto, bDireto, destinoDireto, n, 0, tamanho);
+                    destinoDireto.get(0, obtidoDireto);
+                    if (!Arrays.equals(esperado, obtido) || !Arrays.equals(esperado, obtidoDireto)) {
+                        System.out.println("Diferença em " + operacao + " " + estrategia + " n=" + n);
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tarefa que aplica 'operacao' a dois buffers aleatórios de 'tamanho' bytes, no heap
+     * (byte[]) ou fora dele (ByteBuffer direto), dividindo o trabalho entre as threads do
+     * pool.
+     */
+    public static Medicao.Tarefa criarTarefa(String operacao, String estrategia, String armazenamento,
+                                             int tamanho, ForkJoinPool pool) {
+        byte[] a = new byte[tamanho];
+        byte[] b = new byte[tamanho];
+        SplittableRandom random = new SplittableRandom(42);
+        random.nextBytes(a);
+        random.nextBytes(b);
+        int deslocamento = 3;
+        switch (armazenamento) {
+            case "heap": {
+                byte[] destino = new byte[tamanho];
+                return () -> {
+                    aplicarParalelo(operacao, estrategia, a, b, destino, deslocamento, pool);
+                    return destino[0];
+                };
+            }
+            case "direto": {
+                ByteBuffer aDireto = ByteBuffer.allocateDirect(tamanho).put(a);
+                ByteBuffer bDireto = ByteBuffer.allocateDirect(tamanho).put(b);
+                ByteBuffer destino = ByteBuffer.allocateDirect(tamanho);
+                return () -> {
+                    aplicarParalelo(operacao, estrategia, aDireto, bDireto, destino, deslocamento, pool);
+                    return destino.get(0);
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Armazenamento desconhecido: " + armazenamento);
+        }
+    }
+
+    /**
+     * Mede todas as estratégias de uma operação nesta JVM e imprime uma linha
+     * "estrategia coluna GB/s" por medição (colunas: heap, direto e heap com N threads).
+     */
+    static void medirNestaJVM(String operacao, int tamanho, int threads) throws Exception {
+        ForkJoinPool uma = new ForkJoinPool(1);
+        ForkJoinPool varias = new ForkJoinPool(threads);
+        String[] armazenamentos = {"heap", "direto", "heap"};
+        // Buffers pequenos são processados várias vezes por iteração, para que o JIT
+        // compile os laços durante o aquecimento e o tempo medido não seja só ruído
+        int repeticoes = Math.max(1, (256 << 20) / tamanho);
+        ForkJoinPool[] pools = {uma, uma, varias};
+        for (String estrategia : ESTRATEGIAS) {
+            if (estrategia.equals("vetor") && !KernelsSoma.VETORIAL_DISPONIVEL) {
+                continue;
+            }
+            for (int c = 0; c < pools.length; c++) {
+                Medicao.Tarefa tarefa = criarTarefa(operacao, estrategia, armazenamentos[c], tamanho, pools[c]);
+                double gbs = (double) tamanho * repeticoes / Medicao.minimo(Medicao.medir(3, 5, () -> {
+                    long soma = 0;
+                    for (int r = 0; r < repeticoes; r++) {
+                        soma += tarefa.executar();
+                    }
+                    return soma;
+                }));
+                System.out.println(estrategia + " " + c + " " + gbs);
+            }
+        }
+        uma.shutdown();
+        varias.shutdown();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int tamanhoMB = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int tamanho = tamanhoEmBytes(tamanhoMB);
+
+        // Modo usado quando uma operação é medida em uma nova JVM
+        if (args.length > 3 && args[2].equals("--filho")) {
+            medirNestaJVM(args[3], tamanho, threads);
+            return;
+        }
+
+        System.out.println("Verificação das estratégias contra o laço byte a byte: " + (verificar() ? "ok" : "FALHOU"));
+        System.out.printf("%d MB por operação (deslocamentos de 3 bits), em GB/s de entrada; heap e direto com 1 thread,"
+                          + " heapN com %d (uma JVM nova por linha)\n", tamanhoMB, threads);
+        System.out.println("--------------------------------------------------------------------------------------------");
+        System.out.printf("%-8s |", "");
+        for (String estrategia : ESTRATEGIAS) {
+            System.out.printf(" %-25s |", estrategia.toUpperCase());
+        }
+        System.out.printf("\n%-8s |", "Operação");
+        for (int e = 0; e < ESTRATEGIAS.length; e++) {
+            System.out.printf(" %7s %7s %7s   |", "heap", "direto", "heapN");
+        }
+        System.out.println();
+
+        for (String operacao : OPERACOES) {
+            List<String> saida = Medicao.executarEmNovaJVM(List.of("-Xmx" + (4 * tamanhoMB + 512) + "m"),
+                    "OperacoesBitsEmMassa", List.of(String.valueOf(tamanhoMB), String.valueOf(threads),
+                                                    "--filho", operacao));
+            System.out.printf("%-8s |", operacao);
+            for (String estrategia : ESTRATEGIAS) {
+                String[] colunas = {"-", "-", "-"};
+                for (String linha : saida) {
+                    String[] campos = linha.trim().split(" ");
+                    if (campos.length == 3 && campos[0].equals(estrategia)) {
+                        colunas[Integer.parseInt(campos[1])] = String.format("%.2f", Double.parseDouble(campos[2]));
+                    }
+                }
+                System.out.printf(" %7s %7s %7s   |", colunas[0], colunas[1], colunas[2]);
+            }
+            System.out.println();
+        }
+        System.out.println();
+    }
+}
@@ -0,0 +1,222 @@
+/*
+
+Experimento: Padrões de Acesso Amigos e Inimigos do Pré-carregador (Prefetcher)
+
+A somaEspalhada (CacheLocalidadeTemporal) e o acessarComSalto (CacheTamanhoLinha) usam
+saltos constantes. O pré-carregador da CPU percebe esse tipo de padrão depois de poucos
+acessos e passa a buscar as próximas linhas antes de elas serem pedidas, o que esconde boa
+parte da latência da memória. Tabelas hash e árvores, porém, não andam em passos
+constantes: cada consulta cai em um lugar imprevisível do array.
+
+Aqui percorremos o MESMO array de ints com vários padrões, cada um uma implementação da
+interface Padrao:
+- SEQUENCIAL: 0, 1, 2, 3... (o melhor caso).
+- SALTO:      de 16 em 16 ints (64 bytes), uma linha de cache nova a cada acesso, mas previsível.
+- REVERSO:    n-1, n-2, n-3... (o pré-carregador também reconhece o sentido inverso).
+- PERMUTACAO: todas as posições, cada uma uma vez, em ordem pseudoaleatória calculada
+              na hora (sem array de índices, ver Permutacao).
+- ZIPF:       posições sorteadas com distribuição de Zipf: um pequeno conjunto "quente",
+              espalhado pelo array, recebe a maioria dos acessos (como as chaves populares
+              de um cache).
+- GATHER:     posições uniformemente aleatórias lidas de um array de índices, como as
+              consultas a uma tabela hash.
+
+Para cada tamanho do array imprimimos milhões de acessos por segundo. Enquanto o array cabe
+no cache todos os padrões andam perto; quando ele passa do L3, os padrões aleatórios caem
+para a velocidade da RAM e ZIPF fica no meio, pois o conjunto quente continua no cache.
+
+Uso: java -Xmx2g -cp bin PadroesAcesso [tamanhosKB separados por vírgula] [acessos]
+
+*/
+
+import java.util.SplittableRandom;
+
+public class PadroesAcesso {
+
+    public static final String[] PADROES = {"sequencial", "salto", "reverso", "permutacao", "zipf", "gather"};
+    private static final int SALTO = 16; // 16 ints = 64 bytes
+
+    /**
+     * Uma forma de percorrer um array. Cada chamada faz o mesmo número de acessos
+     * (definido na criação) e retorna a soma dos valores lidos.
+     */
+    public interface Padrao {
+        long percorrer(int[] dados);
+    }
+
+    /**
+     * Cria o padrão 'nome' para arrays de 'tamanho' ints, com 'acessos' leituras por chamada.
+     */
+    public static Padrao criar(String nome, int tamanho, int acessos, long semente) {
+        switch (nome) {
+            case "sequencial":
+                return new ComSalto(1, acessos);
+            case "salto":
+                return new ComSalto(SALTO % tamanho, acessos);
+            case "reverso":
+                return new Reverso(acessos);
+            case "permutacao":
+                return new Permutacao(tamanho, acessos, semente);
+            case "zipf":
+                return new PorIndices(indicesZipf(tamanho, acessos, semente));
+            case "gather":
+                return new PorIndices(indicesUniformes(tamanho, acessos, semente));
+            default:
+                throw new IllegalArgumentException("Padrão desconhecido: " + nome);
+        }
+    }
+
+    static class ComSalto implements Padrao {
+        private final int salto;
+        private final int acessos;
+
+        ComSalto(int salto, int acessos) {
+            this.salto = salto;
+            this.acessos = acessos;
+        }
+
+        public long percorrer(int[] dados) {
+            long soma = 0;
+            int indice = 0;
+            for (int a = 0; a < acessos; a++) {
+                soma += dados[indice];
+                indice += salto;
+                if (indice >= dados.length) {
+                    indice -= dados.length;
+                }
+            }
+            return soma;
+        }
+    }
+
+    static class Reverso implements Padrao {
+        private final int acessos;
+
+        Reverso(int acessos) {
+            this.acessos = acessos;
+        }
+
+        public long percorrer(int[] dados) {
+            long soma = 0;
+            int indice = dados.length - 1;
+            for (int a = 0; a < acessos; a++) {
+                soma += dados[indice];
+                if (--indice < 0) {
+                    indice = dados.length - 1;
+                }
+            }
+            return soma;
+        }
+    }
+
+    /**
+     * Gerador congruencial linear (x = a * x + c mod 2^k) com período completo: passa por
+     * todos os valores de 0 a 2^k - 1 antes de repetir (teorema de Hull-Dobell: c ímpar e
+     * a - 1 múltiplo de 4). Valores maiores que o array são pulados. Não é uma permutação
+     * "boa" para estatística, mas é imprevisível para o pré-carregador e não gasta memória.
+     */
+    static class Permutacao implements Padrao {
+        private static final long A = 0x5DEECE66DL; // o mesmo de java.util.Random
+        private static final long C = 11;
+        private final long mascara;
+        private final int acessos;
+        private final long inicio;
+
+        Permutacao(int tamanho, int acessos, long semente) {
+            long potencia = Long.highestOneBit(Math.max(1, tamanho - 1)) << 1;
+            this.mascara = potencia - 1;
+            this.acessos = acessos;
+            this.inicio = semente & mascara;
+        }
+
+        public long percorrer(int[] dados) {
+            long soma = 0;
+            long x = inicio;
+            for (int a = 0; a < acessos; a++) {
+                do {
+                    x = (A * x + C) & mascara;
+                } while (x >= dados.length);
+                soma += dados[(int) x];
+            }
+            return soma;
+        }
+    }
+
+    /**
+     * Lê as posições de um array de índices calculado antes (fora do tempo medido).
+     */
+    static class PorIndices implements Padrao {
+        private final int[] indices;
+
+        PorIndices(int[] indices) {
+            this.indices = indices;
+        }
+
+        public long percorrer(int[] dados) {
+            long soma = 0;
+            for (int indice : indices) {
+                soma += dados[indice];
+            }
+            return soma;
+        }
+    }
+
+    static int[] indicesUniformes(int tamanho, int acessos, long semente) {
+        SplittableRandom random = new SplittableRandom(semente);
+        int[] indices = new int[acessos];
+        for (int i = 0; i < acessos; i++) {
+            indices[i] = random.nextInt(tamanho);
+        }
+        return indices;
+    }
+
+    /**
+     * Sorteia posições de Zipf e espalha os itens populares pelo array (multiplicando pela
+     * razão áurea), para que o conjunto quente não seja um trecho contíguo.
+     */
+    static int[] indicesZipf(int tamanho, int acessos, long semente) {
+        DistribuicaoZipf zipf = new DistribuicaoZipf(Math.max(2, tamanho), semente);
+        int[] indices = new int[acessos];
+        for (int i = 0; i < acessos; i++) {
+            indices[i] = (int) Math.floorMod(zipf.proximo() * 0x9E3779B97F4A7C15L, (long) tamanho);
+        }
+        return indices;
+    }
+
+    static String rotulo(long kb) {
+        return kb >= 1024 ? (kb / 1024) + " MB" : kb + " KB";
+    }
+
+    public static void main(String[] args) throws Exception {
+        String[] tamanhosKB = (args.length > 0 ? args[0] : "32,1024,32768,262144").split(",");
+        int acessos = args.length > 1 ? Integer.parseInt(args[1]) : 16_000_000;
+
+        System.out.printf("Milhões de acessos por segundo (%d acessos por medição)\n", acessos);
+        System.out.println("-------------------------------------------------------------------------");
+        System.out.printf("%-11s |", "Padrão");
+        for (String kb : tamanhosKB) {
+            System.out.printf(" %9s |", rotulo(Long.parseLong(kb.trim())));
+        }
+        System.out.println();
+
+        double[][] resultados = new double[PADROES.length][tamanhosKB.length];
+        for (int t = 0; t < tamanhosKB.length; t++) {
+            int tamanho = (int) (Long.parseLong(tamanhosKB[t].trim()) * 1024 / Integer.BYTES);
+            int[] dados = CacheTamanhoLinha.criarDados(tamanho);
+            for (int p = 0; p < PADROES.length; p++) {
+                Padrao padrao = criar(PADROES[p], tamanho, acessos, 42);
+                long[] amostras = Medicao.medir(2, 5, () -> padrao.percorrer(dados));
+                resultados[p][t] = acessos * 1000.0 / Medicao.minimo(amostras);
+            }
+        }
+
+        for (int p = 0; p < PADROES.length; p++) {
+            System.out.printf("%-11s |", PADROES[p].toUpperCase());
+            for (int t = 0; t < tamanhosKB.length; t++) {
+                System.out.printf(" %9.1f |", resultados[p][t]);
+            }
+            System.out.println();
+        }
+        System.out.println();
+    }
+}
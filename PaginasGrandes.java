@@ -0,0 +1,211 @@
+/*
+
+Experimento: Páginas Grandes (Huge Pages) e o Alcance da TLB
+
+O CacheTamanhoLinha varia o salto de 1 a 128 ints (4 a 512 bytes), o que mostra o efeito
+da LINHA de cache. Com um array de 512 MB, porém, saltos maiores esbarram em outro limite:
+a TLB, a pequena tabela da CPU que guarda as traduções de endereço virtual para físico.
+Cada entrada da TLB cobre uma página; com páginas de 4 KB e ~1.500 entradas, a TLB
+"alcança" só ~6 MB. Com saltos de 4 KB ou mais, cada leitura cai em uma página diferente
+e, enquanto o número de páginas tocadas for maior que a TLB, quase toda leitura precisa
+percorrer a tabela de páginas na memória (page walk) antes de buscar o dado.
+
+Páginas grandes de 2 MB cobrem 512 vezes mais memória por entrada. A JVM pode usá-las
+no heap de duas formas:
+- -XX:+UseTransparentHugePages: pede ao kernel (madvise) páginas grandes transparentes (THP);
+- -XX:+UseLargePages: usa páginas reservadas no hugetlbfs (vm.nr_hugepages), que precisam
+  ser configuradas pelo administrador; sem elas a JVM avisa e volta às páginas de 4 KB.
+
+Aqui percorremos o mesmo array com saltos de 64 bytes a 2 MB em JVMs novas, uma para cada
+configuração, mais uma versão FORA DO HEAP: um arquivo mapeado em memória (mmap) no
+/dev/shm, que não depende das opções da JVM. Cada JVM informa também quanta memória
+realmente ficou em páginas grandes (AnonHugePages / Hugetlb em /proc/self/smaps_rollup).
+
+Cuidado ao ler a tabela: com páginas de 4 KB os endereços FÍSICOS das páginas ficam
+espalhados, mas dentro de uma página de 2 MB eles são contíguos. Saltos que são potências
+de 2 entre 8 KB e 1 MB passam então a cair sempre nos mesmos conjuntos (sets) do cache,
+e as faltas por conflito podem esconder, ou até superar, o ganho na TLB. Em máquinas
+virtuais a tradução tem dois níveis (convidado e hospedeiro) e o ganho costuma ser maior.
+
+Uso: java -cp bin PaginasGrandes [tamanhoMB]
+
+*/
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PaginasGrandes {
+
+    // Saltos em bytes: de uma linha de cache até uma página grande
+    private static final int[] SALTOS = {64, 256, 1024, 4096, 16 * 1024, 64 * 1024, 256 * 1024, 1024 * 1024, 2 * 1024 * 1024};
+    private static final long ACESSOS_POR_MEDICAO = 16_000_000;
+    private static final int TAMANHO_PAGINA = 4096;
+
+    private static final String[] NOMES = {"HEAP 4 KB", "HEAP THP", "HEAP LARGEPAGES", "MMAP FORA DO HEAP"};
+    private static final String[][] OPCOES = {
+            {"-XX:-UseTransparentHugePages", "-XX:-UseLargePages"},
+            {"-XX:+UseTransparentHugePages"},
+            {"-XX:+UseLargePages", "-XX:-UseTransparentHugePages"},
+            {}
+    };
+    private static final String[] ARMAZENAMENTO = {"heap", "heap", "heap", "mmap"};
+
+    /**
+     * Soma um int a cada 'saltoBytes' bytes de um buffer mapeado.
+     */
+    static long somarComSalto(MappedByteBuffer buffer, int saltoBytes) {
+        long soma = 0;
+        for (int i = 0; i < buffer.limit(); i += saltoBytes) {
+            soma += buffer.getInt(i);
+        }
+        return soma;
+    }
+
+    /**
+     * Mapeia um arquivo de 'tamanho' bytes no /dev/shm (memória, sem disco) e toca todas as
+     * páginas, para que as faltas de página não entrem na medição.
+     */
+    static MappedByteBuffer criarMapeamento(long tamanho) throws IOException {
+        File diretorio = new File("/dev/shm").isDirectory() ? new File("/dev/shm") : null;
+        File arquivo = File.createTempFile("paginas_grandes", ".dat", diretorio);
+        arquivo.deleteOnExit();
+        try (RandomAccessFile raf = new RandomAccessFile(arquivo, "rw")) {
+            raf.setLength(tamanho);
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, tamanho);
+            for (int i = 0; i < tamanho; i += TAMANHO_PAGINA) {
+                buffer.putInt(i, i);
+            }
+            return buffer;
+        } finally {
+            // O mapeamento continua válido depois que o arquivo é apagado
+            arquivo.delete();
+        }
+    }
+
+    /**
+     * Memória desta JVM em páginas grandes, em KB (THP + hugetlbfs).
+     */
+    static long kbEmPaginasGrandes() {
+        long total = 0;
+        try {
+            for (String linha : Files.readAllLines(Paths.get("/proc/self/smaps_rollup"))) {
+                if (linha.startsWith("AnonHugePages:") || linha.startsWith("ShmemPmdMapped:")
+                        || linha.contains("_Hugetlb:")) {
+                    total += Long.parseLong(linha.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return total;
+    }
+
+    /**
+     * Executado na JVM filha: mede ns por acesso para cada salto e imprime
+     * "salto ns" por linha, seguido de "paginasGrandesKB n".
+     */
+    static void medirNestaJVM(String armazenamento, long tamanho) throws Exception {
+        int[] dados = null;
+        MappedByteBuffer buffer = null;
+        if (armazenamento.equals("heap")) {
+            dados = CacheTamanhoLinha.criarDados((int) (tamanho / Integer.BYTES));
+        } else {
+            buffer = criarMapeamento(tamanho);
+        }
+
+        for (int saltoBytes : SALTOS) {
+            long acessosPorPassada = tamanho / saltoBytes;
+            long passadas = Math.max(1, ACESSOS_POR_MEDICAO / acessosPorPassada);
+            int[] d = dados;
+            MappedByteBuffer b = buffer;
+            int saltoInts = saltoBytes / Integer.BYTES;
+            Medicao.Tarefa tarefa = () -> {
+                long soma = 0;
+                for (long p = 0; p < passadas; p++) {
+                    soma += d != null ? CacheTamanhoLinha.acessarComSalto(d, saltoInts) : somarComSalto(b, saltoBytes);
+                }
+                return soma;
+            };
+            long[] amostras = Medicao.medir(2, 5, tarefa);
+            System.out.println(saltoBytes + " " + (double) Medicao.minimo(amostras) / (passadas * acessosPorPassada));
+        }
+        System.out.println("paginasGrandesKB " + kbEmPaginasGrandes());
+    }
+
+    static String rotulo(long bytes) {
+        return bytes >= 1024 * 1024 ? (bytes / (1024 * 1024)) + " MB" : bytes >= 1024 ? (bytes / 1024) + " KB" : bytes + " B";
+    }
+
+    public static void main(String[] args) throws Exception {
+        int tamanhoMB = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+        long tamanho = tamanhoMB * 1024L * 1024L;
+
+        // Modo usado quando uma configuração é executada em uma nova JVM
+        if (args.length > 2 && args[1].equals("--filho")) {
+            medirNestaJVM(args[2], tamanho);
+            return;
+        }
+
+        System.out.printf("Leituras com salto sobre %d MB, em ns por acesso (uma JVM nova por coluna)\n", tamanhoMB);
+        System.out.println("-------------------------------------------------------------------------------------------");
+
+        double[][] ns = new double[NOMES.length][];
+        String[] paginasGrandes = new String[NOMES.length];
+        for (int c = 0; c < NOMES.length; c++) {
+            List<String> opcoes = new ArrayList<>(Arrays.asList(OPCOES[c]));
+            opcoes.add("-Xmx" + (tamanhoMB + 512) + "m");
+            try {
+                List<String> saida = Medicao.executarEmNovaJVM(opcoes, "PaginasGrandes",
+                        List.of(String.valueOf(tamanhoMB), "--filho", ARMAZENAMENTO[c]));
+                ns[c] = new double[SALTOS.length];
+                int s = 0;
+                for (String linha : saida) {
+                    String[] campos = linha.trim().split(" ");
+                    if (campos[0].equals("paginasGrandesKB")) {
+                        long kb = Long.parseLong(campos[1]);
+                        paginasGrandes[c] = kb < 0 ? "?" : rotulo(kb * 1024);
+                    } else if (campos.length == 2 && s < SALTOS.length) {
+                        ns[c][s++] = Double.parseDouble(campos[1]);
+                    }
+                }
+            } catch (IOException e) {
+                ns[c] = null;
+                paginasGrandes[c] = "falhou";
+            }
+        }
+
+        System.out.printf("%10s |", "Salto");
+        for (String nome : NOMES) {
+            System.out.printf(" %17s |", nome);
+        }
+        System.out.println(" THP economiza");
+        for (int s = 0; s < SALTOS.length; s++) {
+            System.out.printf("%10s |", rotulo(SALTOS[s]));
+            for (int c = 0; c < NOMES.length; c++) {
+                if (ns[c] == null) {
+                    System.out.printf(" %17s |", "-");
+                } else {
+                    System.out.printf(" %17.2f |", ns[c][s]);
+                }
+            }
+            if (ns[0] != null && ns[1] != null) {
+                System.out.printf(" %5.1f%%", 100.0 * (1 - ns[1][s] / ns[0][s]));
+            }
+            System.out.println();
+        }
+        System.out.printf("%10s |", "Em 2 MB");
+        for (String kb : paginasGrandes) {
+            System.out.printf(" %17s |", kb);
+        }
+        System.out.println("\n\n(\"Em 2 MB\" é a memória que cada JVM realmente conseguiu em páginas grandes;"
+                           + " 0 B significa que a opção não teve efeito nesta máquina.)\n");
+    }
+}
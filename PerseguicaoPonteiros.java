@@ -0,0 +1,104 @@
+/*
+
+Experimento: Perseguição de Ponteiros (Pointer Chasing) e a "Escada" de Latência
+
+Em CacheLocalidadeTemporal a soma espalhada usa um salto fixo (4096) sobre um array de
+10.000 ints (40 KB), que cabe inteiro no cache L2. Além disso, como os endereços seguem
+um padrão previsível, o pré-carregador (prefetcher) da CPU busca os próximos dados antes
+de eles serem pedidos, escondendo a latência da memória.
+
+Para medir a latência de verdade precisamos que:
+1. cada leitura DEPENDA da anterior (o endereço da próxima leitura é o valor lido), para
+   que a CPU não consiga fazer várias leituras ao mesmo tempo;
+2. a ordem dos endereços seja aleatória, para que o prefetcher não consiga adivinhá-la;
+3. o conjunto de dados (working set) varie de poucos KB até muito mais que o cache L3.
+
+Montamos em um int[] uma permutação cíclica aleatória (algoritmo de Sattolo) entre linhas
+de cache: o primeiro int de cada linha de 64 bytes guarda o índice da próxima linha a
+visitar. Seguir o ciclo (i = proximo[i]) toca cada linha uma vez por volta, em ordem
+aleatória. O tempo médio por leitura, para cada tamanho, forma uma escada: um degrau para
+o L1, outro para o L2, outro para o L3 e o último para a RAM. A posição de cada degrau
+revela o tamanho de cada nível, e a altura, a sua latência.
+
+Uso: java -Xmx2g -cp bin PerseguicaoPonteiros [tamanhoMaximoMB]
+
+*/
+
+import java.util.SplittableRandom;
+
+public class PerseguicaoPonteiros {
+
+    private static final int INTS_POR_LINHA = 64 / Integer.BYTES; // 16 ints = 64 bytes
+    private static final int MENOR_TAMANHO = 4 * 1024;            // 4 KB
+    private static final long PASSOS = 20_000_000;                 // leituras medidas por tamanho
+
+    /**
+     * Monta o ciclo aleatório sobre as linhas de cache de um array de 'tamanhoBytes'.
+     */
+    public static int[] criarCiclo(long tamanhoBytes, long semente) {
+        int ints = (int) (tamanhoBytes / Integer.BYTES);
+        int linhas = ints / INTS_POR_LINHA;
+        int[] ordem = new int[linhas];
+        for (int i = 0; i < linhas; i++) {
+            ordem[i] = i;
+        }
+        // Sattolo: como o Fisher-Yates, mas j < i, o que gera um único ciclo com todas as linhas
+        SplittableRandom random = new SplittableRandom(semente);
+        for (int i = linhas - 1; i > 0; i--) {
+            int j = random.nextInt(i);
+            int t = ordem[i];
+            ordem[i] = ordem[j];
+            ordem[j] = t;
+        }
+
+        int[] proximo = new int[ints];
+        for (int linha = 0; linha < linhas; linha++) {
+            proximo[linha * INTS_POR_LINHA] = ordem[linha] * INTS_POR_LINHA;
+        }
+        return proximo;
+    }
+
+    /**
+     * Segue o ciclo por 'passos' leituras. Cada leitura depende do valor da anterior.
+     */
+    public static int perseguir(int[] proximo, long passos) {
+        int i = 0;
+        for (long p = 0; p < passos; p++) {
+            i = proximo[i];
+        }
+        return i; // Retornado para que o laço não seja eliminado
+    }
+
+    public static void main(String[] args) {
+        long tamanhoMaximo = (args.length > 0 ? Long.parseLong(args[0]) : 1024) * 1024 * 1024;
+
+        System.out.println("Latência por leitura dependente, em função do tamanho do conjunto de dados");
+        System.out.println("-------------------------------------------------------------------------");
+        System.out.println("   Tamanho | ns/leitura |");
+
+        perseguir(criarCiclo(MENOR_TAMANHO, 1), PASSOS); // Aquecimento do JIT
+
+        double anterior = 0;
+        for (long tamanho = MENOR_TAMANHO; tamanho <= tamanhoMaximo; tamanho *= 2) {
+            int[] proximo;
+            try {
+                proximo = criarCiclo(tamanho, tamanho);
+            } catch (OutOfMemoryError e) {
+                System.out.println("Sem memória para " + tamanho / (1024 * 1024) + " MB; aumente o -Xmx.");
+                break;
+            }
+            perseguir(proximo, proximo.length / INTS_POR_LINHA); // Uma volta para trazer os dados ao cache
+
+            long inicio = System.nanoTime();
+            Medicao.buracoNegro = perseguir(proximo, PASSOS);
+            double ns = (double) (System.nanoTime() - inicio) / PASSOS;
+
+            String rotulo = tamanho >= 1024 * 1024 ? (tamanho / (1024 * 1024)) + " MB" : (tamanho / 1024) + " KB";
+            // Um aumento de 40% em relação ao tamanho anterior indica que um nível de cache foi excedido
+            String degrau = anterior > 0 && ns > anterior * 1.4 ? " <- degrau: o nível anterior tem ~" + (tamanho / 2 / 1024) + " KB" : "";
+            System.out.printf("%10s | %10.2f |%s\n", rotulo, ns, degrau);
+            anterior = ns;
+        }
+        System.out.println();
+    }
+}
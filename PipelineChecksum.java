@@ -0,0 +1,330 @@
+/*
+
+Experimento: Sobrepondo a Leitura do Disco com o Cálculo
+
+O RAMvsDisco primeiro carrega o arquivo inteiro para um byte[] (Files.readAllBytes, 512 MB
+no heap) e só depois percorre os dados. Enquanto o disco trabalha a CPU fica parada, e
+enquanto a CPU trabalha o disco fica parado. Além disso a memória usada cresce com o
+tamanho do arquivo.
+
+Aqui calculamos um checksum (soma dos bytes, CRC32C ou xxHash64) do arquivo de três formas:
+- LER E DEPOIS CALCULAR: como o RAMvsDisco, o arquivo inteiro vai para o heap.
+- SERIAL:               lê um bloco, calcula sobre ele, lê o próximo... (memória limitada,
+                        mas sem sobreposição).
+- PIPELINE:             uma thread leitora preenche um anel de buffers diretos reutilizáveis
+                        e a thread de cálculo consome os buffers cheios ao mesmo tempo. A
+                        memória usada é sempre BUFFERS x TAMANHO_BUFFER, e o tempo total
+                        tende ao MAIOR dos dois estágios, e não à soma deles.
+
+Antes de cada medição o arquivo é retirado do cache de páginas (ver CacheDePaginas).
+
+Uso: java -cp bin PipelineChecksum [tamanhoMB] [soma|crc32c|xxhash]
+
+*/
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32C;
+
+public class PipelineChecksum {
+
+    private static final int BUFFERS = 4;
+    private static final int TAMANHO_BUFFER = 4 * 1024 * 1024; // 4 MB (múltiplo de 32, ver XXHash64)
+
+    /**
+     * Um checksum calculado aos pedaços.
+     */
+    interface Checksum {
+        void atualizar(ByteBuffer dados);
+
+        long valor();
+    }
+
+    static Checksum criarChecksum(String tipo) {
+        switch (tipo) {
+            case "soma":
+                return new Soma();
+            case "crc32c":
+                return new Crc32c();
+            case "xxhash":
+                return new XXHash64(0);
+            default:
+                throw new IllegalArgumentException("Checksum desconhecido: " + tipo);
+        }
+    }
+
+    /**
+     * Soma dos bytes com sinal, igual a RAMvsDisco.somarBytes.
+     */
+    static class Soma implements Checksum {
+        private long soma;
+
+        public void atualizar(ByteBuffer dados) {
+            for (int i = dados.position(); i < dados.limit(); i++) {
+                soma += dados.get(i);
+            }
+            dados.position(dados.limit());
+        }
+
+        public long valor() {
+            return soma;
+        }
+    }
+
+    /**
+     * CRC32C do JDK, que usa a instrução de CRC da CPU quando existe.
+     */
+    static class Crc32c implements Checksum {
+        private final CRC32C crc = new CRC32C();
+
+        public void atualizar(ByteBuffer dados) {
+            crc.update(dados);
+        }
+
+        public long valor() {
+            return crc.getValue();
+        }
+    }
+
+    /**
+     * xxHash64 (https://github.com/Cyan4973/xxHash), um hash não criptográfico muito rápido.
+     * Os dados são processados em faixas de 32 bytes; cada chamada a atualizar deve receber
+     * um múltiplo de 32 bytes, exceto a última.
+     */
+    static class XXHash64 implements Checksum {
+        private static final long P1 = 0x9E3779B185EBCA87L;
+        private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+        private static final long P3 = 0x165667B19E3779F9L;
+        private static final long P4 = 0x85EBCA77C2B2AE63L;
+        private static final long P5 = 0x27D4EB2F165667C5L;
+
+        private final long semente;
+        private long v1, v2, v3, v4;
+        private long total;
+        private ByteBuffer resto = ByteBuffer.allocate(0);
+
+        XXHash64(long semente) {
+            this.semente = semente;
+            v1 = semente + P1 + P2;
+            v2 = semente + P2;
+            v3 = semente;
+            v4 = semente - P1;
+        }
+
+        private static long rodada(long acc, long entrada) {
+            acc += entrada * P2;
+            acc = Long.rotateLeft(acc, 31);
+            return acc * P1;
+        }
+
+        private static long juntar(long acc, long v) {
+            acc ^= rodada(0, v);
+            return acc * P1 + P4;
+        }
+
+        public void atualizar(ByteBuffer dados) {
+            if (resto.hasRemaining()) {
+                throw new IllegalStateException("Somente o último bloco pode ter tamanho fora de múltiplo de 32");
+            }
+            ByteBuffer b = dados.slice().order(ByteOrder.LITTLE_ENDIAN);
+            int n = b.remaining();
+            total += n;
+            int i = 0;
+            for (; i + 32 <= n; i += 32) {
+                v1 = rodada(v1, b.getLong(i));
+                v2 = rodada(v2, b.getLong(i + 8));
+                v3 = rodada(v3, b.getLong(i + 16));
+                v4 = rodada(v4, b.getLong(i + 24));
+            }
+            resto = b.position(i).slice().order(ByteOrder.LITTLE_ENDIAN);
+            dados.position(dados.limit());
+        }
+
+        public long valor() {
+            long h;
+            if (total >= 32) {
+                h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+                h = juntar(h, v1);
+                h = juntar(h, v2);
+                h = juntar(h, v3);
+                h = juntar(h, v4);
+            } else {
+                h = semente + P5;
+            }
+            h += total;
+
+            ByteBuffer b = resto.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            int i = 0, n = b.remaining();
+            for (; i + 8 <= n; i += 8) {
+                h ^= rodada(0, b.getLong(i));
+                h = Long.rotateLeft(h, 27) * P1 + P4;
+            }
+            if (i + 4 <= n) {
+                h ^= (b.getInt(i) & 0xFFFFFFFFL) * P1;
+                h = Long.rotateLeft(h, 23) * P2 + P3;
+                i += 4;
+            }
+            for (; i < n; i++) {
+                h ^= (b.get(i) & 0xFFL) * P5;
+                h = Long.rotateLeft(h, 11) * P1;
+            }
+            h ^= h >>> 33;
+            h *= P2;
+            h ^= h >>> 29;
+            h *= P3;
+            h ^= h >>> 32;
+            return h;
+        }
+    }
+
+    /**
+     * Lê o arquivo inteiro para o heap e só então calcula (como o RAMvsDisco).
+     */
+    public static long lerDepoisCalcular(File arquivo, String tipo) throws IOException {
+        byte[] dados = Files.readAllBytes(arquivo.toPath());
+        Checksum checksum = criarChecksum(tipo);
+        checksum.atualizar(ByteBuffer.wrap(dados));
+        return checksum.valor();
+    }
+
+    /**
+     * Lê um bloco e calcula sobre ele, na mesma thread, até o fim do arquivo.
+     */
+    public static long serial(File arquivo, String tipo) throws IOException {
+        Checksum checksum = criarChecksum(tipo);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+            while (preencher(canal, buffer)) {
+                checksum.atualizar(buffer);
+            }
+        }
+        return checksum.valor();
+    }
+
+    /**
+     * Lê do canal até encher o buffer ou chegar ao fim do arquivo. O buffer volta pronto
+     * para leitura (flip). Retorna false se nada foi lido.
+     */
+    static boolean preencher(FileChannel canal, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining() && canal.read(buffer) != -1) {
+            // continua lendo até encher o buffer
+        }
+        buffer.flip();
+        return buffer.hasRemaining();
+    }
+
+    /**
+     * Leitura e cálculo em paralelo, ligados por um anel de BUFFERS buffers diretos:
+     * a fila 'livres' tem os buffers prontos para receber dados e a fila 'cheios', os
+     * buffers prontos para o cálculo. Um buffer vazio na fila 'cheios' indica o fim.
+     */
+    public static long pipeline(File arquivo, String tipo) throws Exception {
+        BlockingQueue<ByteBuffer> livres = new ArrayBlockingQueue<>(BUFFERS);
+        BlockingQueue<ByteBuffer> cheios = new ArrayBlockingQueue<>(BUFFERS + 1);
+        for (int i = 0; i < BUFFERS; i++) {
+            livres.add(ByteBuffer.allocateDirect(TAMANHO_BUFFER));
+        }
+        ByteBuffer fim = ByteBuffer.allocate(0);
+        Exception[] erroLeitor = new Exception[1];
+
+        Thread leitor = new Thread(() -> {
+            try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+                while (true) {
+                    ByteBuffer buffer = livres.take();
+                    if (!preencher(canal, buffer)) {
+                        break;
+                    }
+                    cheios.put(buffer);
+                }
+            } catch (Exception e) {
+                erroLeitor[0] = e;
+            } finally {
+                cheios.add(fim);
+            }
+        }, "leitor");
+        // Se o cálculo falhar, o leitor não pode prender a JVM esperando um buffer livre
+        leitor.setDaemon(true);
+        Checksum checksum = criarChecksum(tipo);
+        leitor.start();
+        try {
+            ByteBuffer buffer;
+            while ((buffer = cheios.take()) != fim) {
+                checksum.atualizar(buffer);
+                livres.put(buffer);
+            }
+        } finally {
+            // No caminho normal o leitor já terminou; numa exceção ele é acordado aqui
+            leitor.interrupt();
+            leitor.join();
+        }
+        if (erroLeitor[0] != null) {
+            throw erroLeitor[0];
+        }
+        return checksum.valor();
+    }
+
+    interface Modo {
+        long executar(File arquivo, String tipo) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int tamanhoMB = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+        String tipo = args.length > 1 ? args[1] : "crc32c";
+        File arquivo = new File("pipeline_checksum.dat");
+        if (arquivo.length() != tamanhoMB * 1024L * 1024L) {
+            System.out.printf("Criando arquivo de %d MB...\n", tamanhoMB);
+            RAMvsDisco.criarArquivoTemporario(arquivo, tamanhoMB * 1024L * 1024L);
+        }
+
+        CacheDePaginas.prepararPreenchimento();
+
+        System.out.printf("Checksum %s de %d MB, com o cache do S.O. esvaziado antes de cada medição\n", tipo, tamanhoMB);
+        System.out.println("-------------------------------------------------------------------------");
+
+        String[] nomes = {"LER E DEPOIS CALCULAR", "SERIAL", "PIPELINE"};
+        Modo[] modos = {PipelineChecksum::lerDepoisCalcular, PipelineChecksum::serial, PipelineChecksum::pipeline};
+        String[] memoria = {tamanhoMB + " MB no heap", TAMANHO_BUFFER / (1024 * 1024) + " MB",
+                            BUFFERS * TAMANHO_BUFFER / (1024 * 1024) + " MB"};
+        double tempoReferencia = 0;
+        long referencia = 0;
+        Set<String> metodosEsvaziamento = new LinkedHashSet<>();
+
+        for (int m = 0; m < modos.length; m++) {
+            if (m == 0 && arquivo.length() > Integer.MAX_VALUE - 8) {
+                System.out.printf("%-22s arquivo maior que 2 GB não cabe em um byte[]; pulado\n", nomes[m]);
+                continue;
+            }
+            modos[m].executar(arquivo, tipo); // Aquecimento do JIT
+            metodosEsvaziamento.add(CacheDePaginas.esvaziarOuPreencher(arquivo));
+
+            long inicio = System.nanoTime();
+            long valor = modos[m].executar(arquivo, tipo);
+            double ms = (System.nanoTime() - inicio) / 1_000_000.0;
+
+            if (tempoReferencia == 0) {
+                tempoReferencia = ms;
+                referencia = valor;
+            }
+            System.out.printf("%-22s %9.2f ms | %8.2f MB/s | memória: %-12s | %.2fx | %016x%s\n",
+                              nomes[m], ms, tamanhoMB / (ms / 1000.0), memoria[m], tempoReferencia / ms, valor,
+                              valor == referencia ? "" : " (DIFERENTE!)");
+        }
+        if (metodosEsvaziamento.remove(null)) {
+            System.out.println("Cache do S.O. NÃO esvaziado em pelo menos uma medição (use -Dcache.preencher=true).");
+        }
+        if (!metodosEsvaziamento.isEmpty()) {
+            System.out.println("Cache do S.O. esvaziado via " + String.join(", ", metodosEsvaziamento) + ".");
+        }
+        System.out.println();
+    }
+}
@@ -4,108 +4,230 @@ Experimento RAM vs. Disco:
 
 Vamos fazer um programa faz o seguinte:
 - Cria um arquivo grande (ex: 512 MB) no disco com dados aleatórios.
+  - O tamanho pode ser passado em MB na linha de comando: java RAMvsDisco 20480
+  - O arquivo é gerado em paralelo: cada thread preenche pedaços de 8 MB com um gerador
+    SplittableRandom próprio e os grava na sua posição com FileChannel.write(buffer, pos).
 - Mede o tempo para ler todo o conteúdo do arquivo do disco. 
   - Faremos isso duas vezes para observar um efeito interessante.
+  - Antes da primeira leitura o arquivo é retirado do cache de páginas do S.O.
+    (ver CacheDePaginas); sem isso a leitura "fria" estaria lendo da RAM.
 - Carrega todo o arquivo para um array de bytes na memória RAM.
 - Mede o tempo para "ler" (percorrer) esse array de bytes que já está na RAM.
 - Compara os tempos e observa a enorme diferença.
+- Por fim, compara outros caminhos de leitura (FileChannel, mmap, transferTo) com o
+  BufferedInputStream usado nos testes acima (ver LeitoresArquivo).
 
 */
 
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
 
 public class RAMvsDisco {
     
 
     private static final String NOME_ARQUIVO = "arquivo_temporario.dat";
     // Arquivo com 512 MB. Grande o suficiente para a medição ser significativa.
-    private static final int TAMANHO_ARQUIVO_BYTES = 512 * 1024 * 1024;
+    private static final long TAMANHO_ARQUIVO_PADRAO_BYTES = 512L * 1024 * 1024;
+    private static long tamanhoArquivoBytes = TAMANHO_ARQUIVO_PADRAO_BYTES;
     private static final File arquivo = new File(NOME_ARQUIVO);
+    // Buffer usado nas leituras com stream (ver VarreduraBuffers para outros tamanhos)
+    public static final int TAMANHO_BUFFER_PADRAO = 8192; // 8 KB
+    // Cada tarefa da geração paralela preenche e grava um pedaço deste tamanho
+    private static final int TAMANHO_PEDACO_GERACAO = 8 * 1024 * 1024; // 8 MB
 
 
     public static void criarArquivoTemporario() throws IOException {
         System.out.printf("Criando arquivo temporário de %d MB...\n", 
-                          TAMANHO_ARQUIVO_BYTES / (1024 * 1024));
+                          tamanhoArquivoBytes / (1024 * 1024));
         long inicio = System.currentTimeMillis();
         
-        try (FileOutputStream fos = new FileOutputStream(arquivo)) {
-            byte[] buffer = new byte[8192]; // Buffer de 8 KB
-            Random random = new Random();
-            for (int i = 0; i < TAMANHO_ARQUIVO_BYTES / buffer.length; i++) {
-                random.nextBytes(buffer);
-                fos.write(buffer);
-            }
-        }
+        criarArquivoTemporario(arquivo, tamanhoArquivoBytes);
+
         long fim = System.currentTimeMillis();
         System.out.printf("Arquivo criado em %d ms.\n\n", (fim - inicio));
     }
 
-    public static long testeLeituraDiscoCacheFrio() throws IOException {
-        System.out.println("--- Teste 1: Lendo do Disco (Cache Frio) ---");
-        long inicio = System.currentTimeMillis();
-        long bytesLidos = 0;
+    /**
+     * Preenche o arquivo indicado com dados aleatórios (sem imprimir nada).
+     */
+    public static void criarArquivoTemporario(File destino, long tamanhoBytes) throws IOException {
+        gerarEmParalelo(destino, tamanhoBytes, TAMANHO_PEDACO_GERACAO);
+    }
+
+    /**
+     * Gera o arquivo em paralelo. O arquivo é pré-alocado com o tamanho final e dividido em
+     * pedaços; cada pedaço é preenchido por um SplittableRandom criado a partir da semente e
+     * do índice do pedaço com DadosAleatorios.gerador (o conteúdo não depende de qual thread
+     * o gerou, e pedaços vizinhos não têm sequências parecidas) e gravado na sua posição com
+     * uma escrita posicional, sem disputar a posição do arquivo com as outras threads.
+     */
+    private static void gerarEmParalelo(File destino, long tamanhoBytes, int tamanhoPedaco)
+            throws IOException {
+        long semente = System.nanoTime();
+        long pedacos = (tamanhoBytes + tamanhoPedaco - 1) / tamanhoPedaco;
+        // Um buffer direto por thread, reaproveitado entre pedaços
+        ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(
+                () -> ByteBuffer.allocateDirect(tamanhoPedaco).order(ByteOrder.nativeOrder()));
+
+        try (RandomAccessFile raf = new RandomAccessFile(destino, "rw")) {
+            raf.setLength(tamanhoBytes);
+            FileChannel canal = raf.getChannel();
+
+            LongStream.range(0, pedacos).parallel().forEach(indice -> {
+                long posicao = indice * tamanhoPedaco;
+                int tamanho = (int) Math.min(tamanhoPedaco, tamanhoBytes - posicao);
+                ByteBuffer buffer = buffers.get();
+                buffer.clear();
+                SplittableRandom random = DadosAleatorios.gerador(semente, indice);
+                while (buffer.position() + Long.BYTES <= tamanho) {
+                    buffer.putLong(random.nextLong());
+                }
+                while (buffer.position() < tamanho) {
+                    buffer.put((byte) random.nextInt());
+                }
+                buffer.flip();
+                try {
+                    while (buffer.hasRemaining()) {
+                        canal.write(buffer, posicao + buffer.position());
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-        try (FileInputStream fis = new FileInputStream(arquivo);
-             BufferedInputStream bis = new BufferedInputStream(fis)) {
-            byte[] buffer = new byte[8192];
+    /**
+     * Lê o arquivo inteiro através de um BufferedInputStream e retorna o número de bytes lidos.
+     */
+    public static long lerComStream(File origem) throws IOException {
+        return lerComStream(origem, TAMANHO_BUFFER_PADRAO);
+    }
+
+    public static long lerComStream(File origem, int tamanhoBuffer) throws IOException {
+        long bytesLidos = 0;
+        try (FileInputStream fis = new FileInputStream(origem);
+             BufferedInputStream bis = new BufferedInputStream(fis, tamanhoBuffer)) {
+            byte[] buffer = new byte[tamanhoBuffer];
             int bytesRead;
             while ((bytesRead = bis.read(buffer)) != -1) {
                 bytesLidos += bytesRead;
             }
         }
+        return bytesLidos;
+    }
+
+    /**
+     * Percorre um array que já está na RAM, somando todos os bytes.
+     */
+    public static long somarBytes(byte[] dadosEmMemoria) {
+        long soma = 0; // Usamos uma soma para garantir que o compilador não otimize o loop
+        for (byte b : dadosEmMemoria) {
+            soma += b;
+        }
+        return soma;
+    }
+
+    public static long testeLeituraDiscoCacheFrio() throws IOException {
+        System.out.println("--- Teste 1: Lendo do Disco (Cache Frio) ---");
+
+        // O arquivo pode estar no cache do S.O. (acabou de ser criado ou lido).
+        // Tiramos ele de lá antes de medir.
+        String metodo = CacheDePaginas.esvaziarOuPreencher(arquivo);
+        long residentes = CacheDePaginas.bytesNoCache(arquivo);
+        if (metodo == null) {
+            System.out.println("Cache do S.O. NÃO esvaziado (sem permissão; use -Dcache.preencher=true):"
+                               + " a leitura abaixo vem da RAM.");
+        } else {
+            System.out.printf("Cache do S.O. esvaziado via %s%s.\n", metodo,
+                              residentes < 0 ? "" : " (" + residentes / (1024 * 1024) + " MB ainda no cache)");
+        }
+
+        MetricasGC.Instantaneo gcAntes = MetricasGC.agora();
+        long inicio = System.currentTimeMillis();
+        long bytesLidos = lerComStream(arquivo);
         
         long fim = System.currentTimeMillis();
+        MetricasGC.Trecho gc = gcAntes.ate(MetricasGC.agora());
         long tempo = fim - inicio;
-        System.out.printf("Lidos %d MB do disco em %d ms.\n\n", 
+        System.out.printf("Lidos %d MB do disco em %d ms.\n", 
                           bytesLidos / (1024 * 1024), tempo);
+        System.out.println(gc.resumo() + "\n");
         return tempo;
     }
 
     public static long testeLeituraDiscoCacheQuente() throws IOException {
         System.out.println("--- Teste 2: Lendo do Disco (Cache Quente do S.O.) ---");
+        MetricasGC.Instantaneo gcAntes = MetricasGC.agora();
         long inicio = System.currentTimeMillis();
-        long bytesLidos = 0;
-
-        try (FileInputStream fis = new FileInputStream(arquivo);
-             BufferedInputStream bis = new BufferedInputStream(fis)) {
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = bis.read(buffer)) != -1) {
-                bytesLidos += bytesRead;
-            }
-        }
+        long bytesLidos = lerComStream(arquivo);
         
         long fim = System.currentTimeMillis();
+        MetricasGC.Trecho gc = gcAntes.ate(MetricasGC.agora());
         long tempo = fim - inicio;
-        System.out.printf("Lidos %d MB (do cache do S.O.) em %d ms.\n\n", 
+        System.out.printf("Lidos %d MB (do cache do S.O.) em %d ms.\n", 
                           bytesLidos / (1024 * 1024), tempo);
+        System.out.println(gc.resumo() + "\n");
         return tempo;
     }
     
     public static long testeLeituraRAM() throws IOException {
         System.out.println("--- Teste 3: Lendo da Memória RAM ---");
         
+        // Um byte[] tem no máximo ~2 GB
+        if (arquivo.length() > Integer.MAX_VALUE - 8) {
+            System.out.println("Arquivo maior que 2 GB não cabe em um byte[]; teste pulado.\n");
+            return -1;
+        }
+
         // Primeiro, carregamos o arquivo para a RAM. Essa parte AINDA usa o disco.
+        MetricasGC.Instantaneo gcAntes = MetricasGC.agora();
         byte[] dadosEmMemoria = Files.readAllBytes(arquivo.toPath());
+        MetricasGC.Trecho gcCarga = gcAntes.ate(MetricasGC.agora());
+        System.out.println("Carga para a RAM: " + gcCarga.resumo());
         
+        gcAntes = MetricasGC.agora();
         long inicio = System.currentTimeMillis();
-        long soma = 0; // Usamos uma soma para garantir que o compilador não otimize o loop
         
         // Agora, percorremos o array que já está na RAM.
-        for (byte b : dadosEmMemoria) {
-            soma += b;
-        }
+        long soma = somarBytes(dadosEmMemoria);
 
         long fim = System.currentTimeMillis();
+        MetricasGC.Trecho gc = gcAntes.ate(MetricasGC.agora());
         long tempo = fim - inicio;
-        System.out.printf("Lidos %d MB da RAM em %d ms. (Soma de verificação: %d)\n\n", 
+        System.out.printf("Lidos %d MB da RAM em %d ms. (Soma de verificação: %d)\n", 
                           dadosEmMemoria.length / (1024 * 1024), (fim - inicio), soma);
+        System.out.println(gc.resumo());
+
+        // A soma escalar acima é limitada pela CPU; a vetorial (SIMD) se aproxima do limite da memória
+        // (as duas medidas com aquecimento, para que o JIT já tenha compilado os dois laços)
+        if (KernelsSoma.VETORIAL_DISPONIVEL) {
+            try {
+                double mb = dadosEmMemoria.length / (1024.0 * 1024.0);
+                double msEscalar = Medicao.media(Medicao.medir(5, 5, () -> somarBytes(dadosEmMemoria))) / 1e6;
+                double msVetorial = Medicao.media(Medicao.medir(5, 5, () -> KernelsSoma.somarBytes(dadosEmMemoria))) / 1e6;
+                System.out.printf("Após aquecimento: escalar %.2f MB/s, vetorial (SIMD) %.2f MB/s (%.2fx).%s\n",
+                                  mb / (msEscalar / 1000.0), mb / (msVetorial / 1000.0), msEscalar / msVetorial,
+                                  KernelsSoma.somarBytes(dadosEmMemoria) == soma ? "" : " (SOMA DIFERENTE!)");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        } else {
+            System.out.println("Soma vetorial indisponível (use --add-modules jdk.incubator.vector).");
+        }
+        System.out.println();
         return tempo;
     }
     
@@ -123,10 +245,13 @@ public class RAMvsDisco {
         long tempoDisco, tempoRAM;
         try {
             // Etapa 1: Preparação
-            if (!arquivo.exists()) {
+            if (args.length > 0) {
+                tamanhoArquivoBytes = Long.parseLong(args[0]) * 1024 * 1024;
+            }
+            if (arquivo.length() != tamanhoArquivoBytes) {
                 criarArquivoTemporario();
-                return;
             }            
+            CacheDePaginas.prepararPreenchimento();
 
             // Etapa 2: Teste de Leitura do Disco (1ª vez - "Cache Frio")
             tempoDisco = testeLeituraDiscoCacheFrio();
@@ -137,13 +262,20 @@ public class RAMvsDisco {
             // Etapa 4: Teste de Leitura da RAM
             tempoRAM = testeLeituraRAM();
 
-            System.out.printf("Acessar dados no disco foi cerca de %.2f vezes mais lento do que acessá-los na RAM!\n\n",
-                              (float)tempoDisco/(float)tempoRAM);
+            if (tempoRAM >= 0) {
+                System.out.printf("Acessar dados no disco foi cerca de %.2f vezes mais lento do que acessá-los na RAM!\n\n",
+                                  (float)tempoDisco/(float)tempoRAM);
+            }
+
+            // Etapa 5: Comparação dos caminhos de leitura (com o arquivo no cache do S.O.)
+            System.out.println("--- Teste 4: Comparando caminhos de leitura ---");
+            LeitoresArquivo.compararCaminhos(arquivo);
+            System.out.println();
 
         } catch (IOException e) {
             System.err.println("Ocorreu um erro: " + e.getMessage());
         } finally {
-            // Etapa 5: Limpeza
+            // Etapa 6: Limpeza
             // deletarArquivoTemporario();
         }
     }
@@ -0,0 +1,94 @@
+/*
+
+Experimento: Qual o melhor tamanho de buffer para ler e escrever arquivos?
+
+O RAMvsDisco lê com buffers de 8 KB. Cada read()/write() de um FileInputStream ou
+FileOutputStream vira (aproximadamente) uma chamada de sistema, e cada chamada de sistema
+tem um custo fixo (troca de modo usuário/kernel, verificações, etc.). Buffers maiores
+diluem esse custo fixo, mas a partir de certo ponto:
+- o buffer deixa de caber no cache L2/L3 e cada cópia passa a ir até a RAM;
+- para buffers maiores que 8 KB a JVM aloca (malloc) um buffer nativo temporário do
+  mesmo tamanho a cada chamada, para copiar os dados do heap.
+
+Aqui escrevemos e lemos o mesmo arquivo com buffers de 4 KB até 16 MB e imprimimos a vazão
+e a quantidade estimada de chamadas de sistema (tamanho do arquivo / tamanho do buffer).
+A escrita é feita aqui (escreverComBuffer), e não pelo RAMvsDisco, que gera o arquivo em
+pedaços de 8 MB em paralelo: ela usa um único buffer do tamanho testado, já preenchido
+com dados aleatórios (para medir só a E/S, não o gerador), e termina com um fsync, para
+que os dados realmente cheguem ao disco. A leitura é feita com o arquivo no cache do S.O.
+
+Uso: java -cp bin VarreduraBuffers [tamanhoMB]
+
+*/
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+public class VarreduraBuffers {
+
+    private static final int MENOR_BUFFER = 4 * 1024;         // 4 KB
+    private static final int MAIOR_BUFFER = 16 * 1024 * 1024; // 16 MB
+
+    /**
+     * Escreve 'tamanhoBytes' no arquivo repetindo o conteúdo do buffer e termina com fsync.
+     */
+    public static long escreverComBuffer(File destino, long tamanhoBytes, byte[] buffer)
+            throws IOException {
+        long bytesEscritos = 0;
+        try (FileOutputStream fos = new FileOutputStream(destino)) {
+            while (bytesEscritos < tamanhoBytes) {
+                int n = (int) Math.min(buffer.length, tamanhoBytes - bytesEscritos);
+                fos.write(buffer, 0, n);
+                bytesEscritos += n;
+            }
+            fos.getFD().sync();
+        }
+        return bytesEscritos;
+    }
+
+    private static double mbs(long bytes, long nanos) {
+        return bytes / (1024.0 * 1024.0) / (nanos / 1e9);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int tamanhoMB = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+        long tamanhoBytes = tamanhoMB * 1024L * 1024L;
+        File arquivo = new File("varredura_buffers.dat");
+        arquivo.deleteOnExit();
+
+        System.out.println("Varredura do tamanho de buffer para um arquivo de " + tamanhoMB
+                           + " MB");
+        System.out.println("----------------------------------------"
+                           + "---------------------------------------");
+        System.out.println("  Buffer | Escrita MB/s | Leitura MB/s | Chamadas de sistema "
+                           + "(escrita / leitura)");
+
+        Random random = new Random();
+        for (int tamanhoBuffer = MENOR_BUFFER; tamanhoBuffer <= MAIOR_BUFFER; tamanhoBuffer *= 2) {
+            byte[] buffer = new byte[tamanhoBuffer];
+            random.nextBytes(buffer);
+
+            long inicio = System.nanoTime();
+            long escritos = escreverComBuffer(arquivo, tamanhoBytes, buffer);
+            long tempoEscrita = System.nanoTime() - inicio;
+
+            RAMvsDisco.lerComStream(arquivo, tamanhoBuffer); // Aquecimento
+            inicio = System.nanoTime();
+            long lidos = RAMvsDisco.lerComStream(arquivo, tamanhoBuffer);
+            long tempoLeitura = System.nanoTime() - inicio;
+
+            // Uma chamada por buffer cheio; a leitura tem mais uma, que encontra o fim do arquivo
+            long chamadasEscrita = (escritos + tamanhoBuffer - 1) / tamanhoBuffer;
+            long chamadasLeitura = (lidos + tamanhoBuffer - 1) / tamanhoBuffer + 1;
+
+            String rotulo = tamanhoBuffer >= 1024 * 1024 ? (tamanhoBuffer / (1024 * 1024)) + " MB"
+                                                          : (tamanhoBuffer / 1024) + " KB";
+            System.out.printf("%8s | %12.2f | %12.2f | %10d / %d\n", rotulo,
+                              mbs(escritos, tempoEscrita), mbs(lidos, tempoLeitura),
+                              chamadasEscrita, chamadasLeitura);
+        }
+        System.out.println();
+    }
+}
@@ -0,0 +1,235 @@
+/*
+
+Experimento: Varredura do Tamanho do Conjunto de Dados (Working Set) x Salto
+
+CacheLocalidadeTemporal e CacheTamanhoLinha usam um único tamanho de array, fixo no código
+(10.000 ints e 128 Mi ints). Com um tamanho só não dá para ver o que acontece quando os
+dados deixam de caber em cada nível de cache: para isso seria preciso recompilar e rodar
+de novo para cada tamanho.
+
+Aqui o mesmo código dos dois experimentos é repetido para cada combinação de:
+- tamanho do array: potências de 2, de 4 KB até 512 MB (o array é recriado a cada tamanho);
+- salto entre os acessos.
+
+Os experimentos são:
+- LINHA:    CacheTamanhoLinha.acessarComSalto, que percorre o array lendo um int a cada
+            'salto' ints. Com salto >= 16 (64 bytes) cada leitura cai em uma linha de cache
+            diferente.
+- TEMPORAL: CacheLocalidadeTemporal.somaEspalhada, que dá saltos circulares pelo array
+            (indice = (indice + salto) % tamanho). Um salto com divisor comum com o tamanho
+            só visita tamanho / mdc(tamanho, salto) elementos (com tamanho e salto potências
+            de 2, s=4096 em um array de 16 KB lê sempre dados[0]). Por isso o salto é trocado
+            pelo próximo valor co-primo com o tamanho (os padrões já são ímpares), e o
+            conjunto de dados realmente visitado é gravado junto com o tamanho do array.
+
+O resultado é uma tabela tamanho x salto com milhões de acessos por segundo, impressa no
+terminal e gravada em CSV ou JSON (uma linha/objeto por célula), pronta para virar um mapa
+de calor em uma planilha ou no matplotlib. Nos tamanhos pequenos as leituras vêm do L1 e o
+salto quase não importa; à medida que o tamanho passa do L2 e do L3, os saltos grandes caem
+primeiro.
+
+Uso: java -Xmx2g -cp bin VarreduraTamanho [linha|temporal] [menorKB] [maiorMB] [saltos] [csv|json] [arquivo]
+     ex: java -Xmx2g -cp bin VarreduraTamanho linha 4 512 1,2,4,8,16,32,64 csv
+
+*/
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class VarreduraTamanho {
+
+    // Cada medição faz pelo menos este número de acessos, para que os arrays pequenos
+    // não sejam medidos em poucos microssegundos
+    private static final long ACESSOS_POR_MEDICAO = 32_000_000;
+    private static final int AQUECIMENTOS = 2;
+    private static final int ITERACOES = 5;
+
+    /**
+     * Uma célula da tabela.
+     */
+    static class Resultado {
+        final long tamanhoBytes;
+        final int salto;
+        // Salto realmente usado e bytes distintos visitados (ver conjuntoVisitado)
+        final int saltoEfetivo;
+        final long conjuntoBytes;
+        final double nsPorAcesso;
+
+        Resultado(long tamanhoBytes, int salto, int saltoEfetivo, long conjuntoBytes, double nsPorAcesso) {
+            this.tamanhoBytes = tamanhoBytes;
+            this.salto = salto;
+            this.saltoEfetivo = saltoEfetivo;
+            this.conjuntoBytes = conjuntoBytes;
+            this.nsPorAcesso = nsPorAcesso;
+        }
+
+        double milhoesPorSegundo() {
+            return 1000.0 / nsPorAcesso;
+        }
+    }
+
+    static long mdc(long a, long b) {
+        while (b != 0) {
+            long r = a % b;
+            a = b;
+            b = r;
+        }
+        return a;
+    }
+
+    /**
+     * Salto usado de fato: no TEMPORAL, o menor valor >= salto co-primo com o número de
+     * elementos, para que os saltos circulares visitem o array inteiro.
+     */
+    static int saltoEfetivo(String experimento, int elementos, int salto) {
+        if (!experimento.equals("temporal")) {
+            return salto;
+        }
+        int s = salto;
+        while (mdc(elementos, s) != 1) {
+            s++;
+        }
+        return s;
+    }
+
+    /**
+     * Bytes distintos lidos: no LINHA, um int a cada 'salto'; no TEMPORAL, os
+     * elementos / mdc(elementos, salto) elementos do ciclo.
+     */
+    static long conjuntoVisitado(String experimento, int elementos, int salto) {
+        long distintos = experimento.equals("linha") ? (elementos + salto - 1L) / salto
+                         : elementos / mdc(elementos, salto);
+        return distintos * Integer.BYTES;
+    }
+
+    /**
+     * Mede o tempo por acesso de um experimento sobre 'dados' com o salto indicado.
+     * Usa o menor tempo das iterações, o menos afetado por interrupções do S.O.
+     */
+    static double medirCelula(String experimento, int[] dados, int salto) throws Exception {
+        long acessos;
+        Medicao.Tarefa tarefa;
+        if (experimento.equals("linha")) {
+            long acessosPorPassada = (dados.length + salto - 1) / salto;
+            long passadas = Math.max(1, ACESSOS_POR_MEDICAO / acessosPorPassada);
+            acessos = passadas * acessosPorPassada;
+            tarefa = () -> {
+                long soma = 0;
+                for (long p = 0; p < passadas; p++) {
+                    soma += CacheTamanhoLinha.acessarComSalto(dados, salto);
+                }
+                return soma;
+            };
+        } else if (experimento.equals("temporal")) {
+            acessos = ACESSOS_POR_MEDICAO;
+            tarefa = () -> CacheLocalidadeTemporal.somaEspalhada(dados, (int) ACESSOS_POR_MEDICAO, salto);
+        } else {
+            throw new IllegalArgumentException("Experimento desconhecido: " + experimento);
+        }
+        long[] amostras = Medicao.medir(AQUECIMENTOS, ITERACOES, tarefa);
+        return (double) Medicao.minimo(amostras) / acessos;
+    }
+
+    public static List<Resultado> varrer(String experimento, long menorBytes, long maiorBytes, int[] saltos)
+            throws Exception {
+        List<Resultado> resultados = new ArrayList<>();
+        System.out.printf("%10s |", "Tamanho");
+        for (int salto : saltos) {
+            System.out.printf(" %8s |", "s=" + salto);
+        }
+        System.out.println("   (milhões de acessos/s)");
+
+        for (long tamanho = menorBytes; tamanho <= maiorBytes; tamanho *= 2) {
+            int[] dados;
+            try {
+                dados = CacheTamanhoLinha.criarDados((int) (tamanho / Integer.BYTES));
+            } catch (OutOfMemoryError e) {
+                System.out.println("Sem memória para " + rotulo(tamanho) + "; aumente o -Xmx.");
+                break;
+            }
+            System.out.printf("%10s |", rotulo(tamanho));
+            for (int salto : saltos) {
+                int efetivo = saltoEfetivo(experimento, dados.length, salto);
+                Resultado r = new Resultado(tamanho, salto, efetivo,
+                                            conjuntoVisitado(experimento, dados.length, efetivo),
+                                            medirCelula(experimento, dados, efetivo));
+                resultados.add(r);
+                System.out.printf(" %8.1f |", r.milhoesPorSegundo());
+            }
+            System.out.println();
+        }
+        for (Resultado r : resultados) {
+            if (r.saltoEfetivo != r.salto) {
+                System.out.println("Saltos trocados pelo próximo co-primo com o tamanho: s=" + r.salto + " virou s="
+                                   + r.saltoEfetivo + " (ver o CSV/JSON para cada tamanho)");
+                break;
+            }
+        }
+        return resultados;
+    }
+
+    static String rotulo(long bytes) {
+        return bytes >= 1024 * 1024 ? (bytes / (1024 * 1024)) + " MB" : (bytes / 1024) + " KB";
+    }
+
+    static void gravarCsv(String experimento, List<Resultado> resultados, String arquivo) throws IOException {
+        try (PrintWriter saida = new PrintWriter(Files.newBufferedWriter(Paths.get(arquivo)))) {
+            saida.println("experimento,tamanhoBytes,salto,saltoEfetivo,conjuntoBytes,nsPorAcesso,"
+                          + "milhoesAcessosPorSegundo");
+            for (Resultado r : resultados) {
+                saida.printf(Locale.ROOT, "%s,%d,%d,%d,%d,%.4f,%.3f\n", experimento, r.tamanhoBytes, r.salto,
+                             r.saltoEfetivo, r.conjuntoBytes, r.nsPorAcesso, r.milhoesPorSegundo());
+            }
+        }
+    }
+
+    static void gravarJson(String experimento, List<Resultado> resultados, String arquivo) throws IOException {
+        try (PrintWriter saida = new PrintWriter(Files.newBufferedWriter(Paths.get(arquivo)))) {
+            saida.println("[");
+            for (int i = 0; i < resultados.size(); i++) {
+                Resultado r = resultados.get(i);
+                saida.printf(Locale.ROOT,
+                             "  {\"experimento\": \"%s\", \"tamanhoBytes\": %d, \"salto\": %d, "
+                             + "\"saltoEfetivo\": %d, \"conjuntoBytes\": %d, "
+                             + "\"nsPorAcesso\": %.4f, \"milhoesAcessosPorSegundo\": %.3f}%s\n",
+                             experimento, r.tamanhoBytes, r.salto, r.saltoEfetivo, r.conjuntoBytes,
+                             r.nsPorAcesso, r.milhoesPorSegundo(),
+                             i < resultados.size() - 1 ? "," : "");
+            }
+            saida.println("]");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String experimento = args.length > 0 ? args[0] : "linha";
+        long menor = (args.length > 1 ? Long.parseLong(args[1]) : 4) * 1024;
+        long maior = (args.length > 2 ? Long.parseLong(args[2]) : 512) * 1024 * 1024;
+        String listaSaltos = args.length > 3 ? args[3]
+                             : experimento.equals("linha") ? "1,2,4,8,16,32,64" : "1,17,1025,4097";
+        String formato = args.length > 4 ? args[4] : "csv";
+        String arquivo = args.length > 5 ? args[5] : "resultados-varredura-" + experimento + "." + formato;
+
+        String[] partes = listaSaltos.split(",");
+        int[] saltos = new int[partes.length];
+        for (int i = 0; i < partes.length; i++) {
+            saltos[i] = Integer.parseInt(partes[i].trim());
+        }
+
+        System.out.printf("Varredura %s: tamanhos de %s a %s, saltos %s\n",
+                          experimento.toUpperCase(), rotulo(menor), rotulo(maior), listaSaltos);
+        System.out.println("-------------------------------------------------------------------------");
+        List<Resultado> resultados = varrer(experimento, menor, maior, saltos);
+
+        if (formato.equals("json")) {
+            gravarJson(experimento, resultados, arquivo);
+        } else {
+            gravarCsv(experimento, resultados, arquivo);
+        }
+        System.out.println("\nResultados gravados em " + arquivo + "\n");
+    }
+}